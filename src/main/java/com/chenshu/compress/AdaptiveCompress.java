@@ -0,0 +1,281 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * {@link StreamFactory} that looks at a prefix of each stream before picking
+ * a codec, and records its choice in a leading codec-id byte. The sample is
+ * scored with two cheap estimates: order-0 entropy (how well literals can be
+ * entropy coded) and the fraction of 4-byte sequences seen earlier in the
+ * sample (how much an LZ77 matcher will find). Each {@link Choice} turns the
+ * two into a predicted ratio, and the best prediction whose compression cost
+ * fits the configured nanoseconds-per-byte budget wins, unless a cheaper
+ * choice comes within a few percent of it.
+ */
+class AdaptiveCompress implements StreamFactory {
+
+    static final int DEFAULT_SAMPLE_SIZE = 4096;
+
+    // a stronger choice must save this much more to be worth its cost
+    private static final double MIN_GAIN = 0.03;
+    private static final int HASH_LOG = 12;
+
+    /**
+     * Candidates, cheapest first. The costs are approximate compression
+     * ns/byte on the JSON corpus with a warmed-up JIT. The ratio models are
+     * rough fits to this package's corpora: the stronger codecs are modelled
+     * as saving a further fraction of what the one before them leaves, which
+     * is all that is needed to rank the candidates.
+     */
+    enum Choice {
+        STORE(0.3) {
+            @Override
+            double predictRatio(double entropy, double repeated) {
+                return 1;
+            }
+
+            @Override
+            StreamFactory factory() {
+                return new StoreCompress();
+            }
+        },
+        LZ4(4) {
+            @Override
+            double predictRatio(double entropy, double repeated) {
+                // literals are stored as they are, matches cost ~15%
+                return (1 - repeated) + repeated * 0.15;
+            }
+
+            @Override
+            StreamFactory factory() {
+                return new Lz4FrameCompress(true);
+            }
+        },
+        DEFLATE_FAST(10) {
+            @Override
+            double predictRatio(double entropy, double repeated) {
+                // literals are Huffman coded down to their entropy
+                return (1 - repeated) * entropy / 8 + repeated * 0.13;
+            }
+
+            @Override
+            StreamFactory factory() {
+                return new CompressSizeTest.CommonsDeflateCompress(1);
+            }
+        },
+        DEFLATE(25) {
+            @Override
+            double predictRatio(double entropy, double repeated) {
+                return further(DEFLATE_FAST.predictRatio(entropy, repeated),
+                        0.1);
+            }
+
+            @Override
+            StreamFactory factory() {
+                return new CompressSizeTest.CommonsDeflateCompress(6);
+            }
+        },
+        BZIP2(70) {
+            @Override
+            double predictRatio(double entropy, double repeated) {
+                return further(DEFLATE.predictRatio(entropy, repeated), 0.15);
+            }
+
+            @Override
+            StreamFactory factory() {
+                return new CompressSizeTest.CommonsBZip2Compress(9);
+            }
+        };
+
+        final double nanosPerByte;
+
+        Choice(double nanosPerByte) {
+            this.nanosPerByte = nanosPerByte;
+        }
+
+        abstract double predictRatio(double entropy, double repeated);
+
+        /**
+         * Saves {@code fraction} of the compressible part left by
+         * {@code ratio}.
+         */
+        static double further(double ratio, double fraction) {
+            return ratio - fraction * (1 - ratio);
+        }
+
+        abstract StreamFactory factory();
+    }
+
+    private final double nanosPerByte;
+    private final int sampleSize;
+    private final StreamFactory[] factories;
+
+    /**
+     * @param nanosPerByte compression CPU budget; anything below
+     *        {@code Choice.LZ4}'s cost stores the data
+     */
+    public AdaptiveCompress(double nanosPerByte) {
+        this(nanosPerByte, DEFAULT_SAMPLE_SIZE);
+    }
+
+    public AdaptiveCompress(double nanosPerByte, int sampleSize) {
+        this.nanosPerByte = nanosPerByte;
+        this.sampleSize = sampleSize;
+        Choice[] choices = Choice.values();
+        this.factories = new StreamFactory[choices.length];
+        for (int i = 0; i < choices.length; i++) {
+            factories[i] = choices[i].factory();
+        }
+    }
+
+    @Override
+    public InputStream getInputStream(InputStream in) throws IOException {
+        int id = in.read();
+        if (id < 0 || id >= factories.length) {
+            throw new IOException("Unknown codec id: " + id);
+        }
+        return factories[id].getInputStream(in);
+    }
+
+    @Override
+    public OutputStream getOutputStream(OutputStream out) throws IOException {
+        return new AdaptiveOutputStream(out);
+    }
+
+    static Choice choose(byte[] b, int off, int len, double nanosPerByte) {
+        double entropy = entropy(b, off, len);
+        double repeated = repeated(b, off, len);
+        Choice best = Choice.STORE;
+        double bestRatio = 1;
+        for (Choice c : Choice.values()) {
+            if (c.nanosPerByte > nanosPerByte) {
+                break;
+            }
+            double ratio = c.predictRatio(entropy, repeated);
+            if (ratio < bestRatio - MIN_GAIN) {
+                best = c;
+                bestRatio = ratio;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Order-0 Shannon entropy in bits per byte.
+     */
+    static double entropy(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int[] counts = new int[256];
+        for (int i = off; i < off + len; i++) {
+            counts[b[i] & 0xff]++;
+        }
+        double bits = 0;
+        for (int c : counts) {
+            if (c > 0) {
+                bits -= c * Math.log((double) c / len);
+            }
+        }
+        return bits / len / Math.log(2);
+    }
+
+    /**
+     * Fraction of positions whose 4-byte sequence already occurred in the
+     * sample, found with a single-probe hash table like the LZ matchers use.
+     */
+    static double repeated(byte[] b, int off, int len) {
+        if (len < 4) {
+            return 0;
+        }
+        int[] table = new int[1 << HASH_LOG];
+        int hits = 0;
+        int end = off + len - 3;
+        for (int i = off; i < end; i++) {
+            int seq = (b[i] & 0xff) | (b[i + 1] & 0xff) << 8
+                    | (b[i + 2] & 0xff) << 16 | (b[i + 3] & 0xff) << 24;
+            int h = (seq * -1640531535) >>> (32 - HASH_LOG);
+            int ref = table[h] - 1;
+            if (ref >= 0 && b[ref] == b[i] && b[ref + 1] == b[i + 1]
+                    && b[ref + 2] == b[i + 2] && b[ref + 3] == b[i + 3]) {
+                hits++;
+            }
+            table[h] = i + 1;
+        }
+        return (double) hits / (len - 3);
+    }
+
+    class AdaptiveOutputStream extends OutputStream {
+        private final OutputStream out;
+        private byte[] sample = new byte[sampleSize];
+        private int count;
+        private OutputStream delegate;
+
+        AdaptiveOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (delegate == null) {
+                int n = Math.min(len, sample.length - count);
+                System.arraycopy(b, off, sample, count, n);
+                count += n;
+                off += n;
+                len -= n;
+                if (count < sample.length) {
+                    return;
+                }
+                select();
+            }
+            if (len > 0) {
+                delegate.write(b, off, len);
+            }
+        }
+
+        private void select() throws IOException {
+            Choice choice = choose(sample, 0, count, nanosPerByte);
+            out.write(choice.ordinal());
+            delegate = factories[choice.ordinal()].getOutputStream(out);
+            delegate.write(sample, 0, count);
+            sample = null;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (delegate != null) {
+                delegate.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (delegate == null) {
+                select();
+            }
+            delegate.close();
+        }
+    }
+
+    /**
+     * Pass-through for data that is not worth compressing.
+     */
+    static class StoreCompress implements StreamFactory {
+        @Override
+        public InputStream getInputStream(InputStream in) {
+            return in;
+        }
+
+        @Override
+        public OutputStream getOutputStream(OutputStream out) {
+            return out;
+        }
+    }
+}
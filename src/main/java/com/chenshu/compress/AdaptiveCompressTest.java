@@ -0,0 +1,147 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@link AdaptiveCompress} on a mixed stream of payloads, one of each corpus
+ * kind in turn, against always using the same codec. {@code select} measures
+ * the sampling overhead alone; the ratio of each choice shows up in the
+ * counters. The budget only applies to the adaptive benchmarks, through
+ * {@link Adaptive}, so the fixed codecs run once per size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AdaptiveCompressTest {
+
+    private byte[][] payloads;
+    private int next;
+
+    private StreamFactory lz4;
+    private StreamFactory deflateFast;
+    private StreamFactory deflate;
+
+    @Param({ "4096", "262144" })
+    protected int size;
+
+    @State(Scope.Thread)
+    public static class Adaptive {
+        AdaptiveCompress factory;
+        byte[][] data;
+
+        @Param({ "5", "15", "40" })
+        protected double budget;
+
+        @Setup
+        public void prepare(AdaptiveCompressTest test) throws IOException {
+            Corpus.Kind[] kinds = Corpus.Kind.values();
+            factory = new AdaptiveCompress(budget);
+            data = new byte[kinds.length][];
+            StringBuilder choices = new StringBuilder();
+            for (int i = 0; i < kinds.length; i++) {
+                data[i] = CompressUtils.roundTrip(factory, test.payloads[i]);
+                AdaptiveCompress.Choice choice = AdaptiveCompress.Choice
+                        .values()[data[i][0]];
+                choices.append(i == 0 ? " [" : ", ").append(kinds[i])
+                        .append(' ').append(choice);
+            }
+            System.out.print(choices.append(']'));
+        }
+    }
+
+    @Setup
+    public void prepare() throws IOException {
+        Corpus.Kind[] kinds = Corpus.Kind.values();
+        payloads = new byte[kinds.length][];
+        for (int i = 0; i < kinds.length; i++) {
+            payloads[i] = Corpus.load(kinds[i].name(), size);
+        }
+        lz4 = new Lz4FrameCompress(true);
+        deflateFast = new CompressSizeTest.CommonsDeflateCompress(1);
+        deflate = new CompressSizeTest.CommonsDeflateCompress(6);
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = next + 1 == payloads.length ? 0 : next + 1;
+        return i;
+    }
+
+    private int compress(StreamFactory factory, ThroughputCounters counters)
+            throws IOException {
+        byte[] src = payloads[nextIndex()];
+        int n = CompressUtils.compress(factory, src).length;
+        counters.add(src.length, n);
+        return n;
+    }
+
+    @Benchmark
+    public AdaptiveCompress.Choice select(Adaptive adaptive) {
+        byte[] src = payloads[nextIndex()];
+        return AdaptiveCompress.choose(src, 0,
+                Math.min(src.length, AdaptiveCompress.DEFAULT_SAMPLE_SIZE),
+                adaptive.budget);
+    }
+
+    @Benchmark
+    public int adaptiveCompress(Adaptive adaptive,
+            ThroughputCounters counters) throws IOException {
+        return compress(adaptive.factory, counters);
+    }
+
+    @Benchmark
+    public int adaptiveDecompress(Adaptive adaptive,
+            ThroughputCounters counters) throws IOException {
+        int i = nextIndex();
+        int n = CompressUtils.decompress(adaptive.factory, adaptive.data[i],
+                size).length;
+        counters.add(n, adaptive.data[i].length);
+        return n;
+    }
+
+    @Benchmark
+    public int fixedLz4Compress(ThroughputCounters counters)
+            throws IOException {
+        return compress(lz4, counters);
+    }
+
+    @Benchmark
+    public int fixedDeflateFastCompress(ThroughputCounters counters)
+            throws IOException {
+        return compress(deflateFast, counters);
+    }
+
+    @Benchmark
+    public int fixedDeflateCompress(ThroughputCounters counters)
+            throws IOException {
+        return compress(deflate, counters);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar AdaptiveCompressTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(AdaptiveCompressTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
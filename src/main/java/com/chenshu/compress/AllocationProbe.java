@@ -0,0 +1,45 @@
+package com.chenshu.compress;
+
+import java.lang.management.ManagementFactory;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Prints the bytes allocated per operation by the current thread at the end
+ * of every iteration. JMH 1.5's GC profiler has no allocation rate, so
+ * benchmarks that care call {@link #op()} once per invocation instead.
+ */
+@State(Scope.Thread)
+public class AllocationProbe {
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    private long start;
+    private long ops;
+
+    @Setup(Level.Iteration)
+    public void start() {
+        ops = 0;
+        start = allocatedBytes();
+    }
+
+    public void op() {
+        ops++;
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() {
+        long bytes = allocatedBytes() - start;
+        System.out.printf(" [alloc %.1f B/op]", ops == 0 ? 0.0 : (double) bytes
+                / ops);
+    }
+
+    static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
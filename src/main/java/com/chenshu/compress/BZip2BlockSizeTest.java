@@ -0,0 +1,92 @@
+package com.chenshu.compress;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Commons bzip2 by block size (1-9, in units of 100 KB), on inputs of
+ * several blocks so that block boundaries are part of the measurement.
+ * Throughput and ratio come from {@link ThroughputCounters}. The heap one
+ * compressor and one decompressor take, the figure to multiply by the size
+ * of a worker pool, is printed at setup: it is what the thread allocates
+ * while opening each stream and, for the decompressor, decoding its first
+ * block. That is bzip2's whole working set, about 400 KB + 8 x block size to
+ * compress and 4 x block size to decompress according to the bzip2 manual.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BZip2BlockSizeTest extends StreamFactoryHarness {
+
+    @Param({ "1", "2", "3", "4", "5", "6", "7", "8", "9" })
+    protected int blockSize;
+
+    @Param({ "JSON", "RECORDS" })
+    protected String corpus;
+
+    // 10 and 40 blocks at size 1, 2 and 5 at size 9
+    @Param({ "1048576", "4194304" })
+    protected int size;
+
+    @Setup
+    public void prepare() throws IOException {
+        prepare(new CompressSizeTest.CommonsBZip2Compress(blockSize),
+                Corpus.load(corpus, size));
+
+        long start = AllocationProbe.allocatedBytes();
+        OutputStream out = factory.getOutputStream(new ByteArrayOutputStream());
+        long compressor = AllocationProbe.allocatedBytes() - start;
+        out.close();
+        start = AllocationProbe.allocatedBytes();
+        InputStream in = factory.getInputStream(new ByteArrayInputStream(data));
+        // the decoding tables only come with the first block
+        in.read();
+        long decompressor = AllocationProbe.allocatedBytes() - start;
+        in.close();
+        System.out.printf(" [per instance: compressor %.2f MB,"
+                + " decompressor %.2f MB]", compressor / 1048576.0,
+                decompressor / 1048576.0);
+    }
+
+    @Benchmark
+    public int bzip2Compress(ThroughputCounters counters) throws IOException {
+        return compress(counters);
+    }
+
+    @Benchmark
+    public int bzip2Decompress(ThroughputCounters counters)
+            throws IOException {
+        return decompress(counters);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar BZip2BlockSizeTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(BZip2BlockSizeTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,213 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Byte-bounded LRU cache of decoded blocks in front of a {@link BlockSource}.
+ * Blocks are spread over independently locked segments, each an
+ * access-ordered {@link LinkedHashMap} holding its share of the bound, so
+ * concurrent readers mostly take different locks. A miss decodes outside the
+ * lock; two threads missing the same block both decode it and the second
+ * insert is dropped.
+ * <p>
+ * With {@code offHeap} the blocks live in direct buffers, which keeps a large
+ * cache out of the collector's way at the cost of one more copy on a hit;
+ * buffers of evicted blocks are reused for the next insert instead of
+ * allocating direct memory per miss.
+ */
+class BlockCache implements BlockSource {
+
+    private final BlockSource source;
+    private final boolean offHeap;
+    private final Segment[] segments;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final ThreadLocal<byte[]> scratch = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[source.blockSize()];
+        }
+    };
+    // for partial-block reads, which pass it down to readBlock as dst
+    private final ThreadLocal<byte[]> partial = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[source.blockSize()];
+        }
+    };
+
+    public BlockCache(BlockSource source, long maxBytes, boolean offHeap) {
+        this(source, maxBytes, offHeap, 16);
+    }
+
+    /**
+     * @param concurrency number of segments, rounded up to a power of two
+     */
+    public BlockCache(BlockSource source, long maxBytes, boolean offHeap,
+            int concurrency) {
+        this.source = source;
+        this.offHeap = offHeap;
+        int n = concurrency <= 1 ? 1 : Integer
+                .highestOneBit((concurrency - 1) << 1);
+        this.segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment(maxBytes / n);
+        }
+    }
+
+    @Override
+    public int blockSize() {
+        return source.blockSize();
+    }
+
+    @Override
+    public int blockCount() {
+        return source.blockCount();
+    }
+
+    @Override
+    public long length() {
+        return source.length();
+    }
+
+    @Override
+    public int readBlock(int i, byte[] dst, int off) throws IOException {
+        Segment segment = segments[(i * 0x9E3779B9 >>> 16)
+                & (segments.length - 1)];
+        Integer key = Integer.valueOf(i);
+        synchronized (segment) {
+            Object block = segment.map.get(key);
+            if (block != null) {
+                hits.incrementAndGet();
+                return copy(block, dst, off);
+            }
+        }
+        misses.incrementAndGet();
+        byte[] b = scratch.get();
+        int n = source.readBlock(i, b, 0);
+        System.arraycopy(b, 0, dst, off, n);
+        synchronized (segment) {
+            if (!segment.map.containsKey(key) && n <= segment.capacity) {
+                segment.evict(segment.capacity - n);
+                segment.map.put(key, store(segment, b, n));
+                segment.size += n;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Reads up to {@code len} bytes starting at uncompressed offset
+     * {@code pos} through the cache.
+     *
+     * @return number of bytes read, -1 at or past the end
+     */
+    public int read(long pos, byte[] dst, int off, int len)
+            throws IOException {
+        return BlockFrame.read(this, partial.get(), pos, dst, off, len);
+    }
+
+    private Object store(Segment segment, byte[] b, int n) {
+        if (!offHeap) {
+            return Arrays.copyOf(b, n);
+        }
+        ByteBuffer buf = segment.free.poll();
+        if (buf == null) {
+            buf = ByteBuffer.allocateDirect(source.blockSize());
+        }
+        buf.clear();
+        buf.put(b, 0, n).flip();
+        return buf;
+    }
+
+    private static int copy(Object block, byte[] dst, int off) {
+        if (block instanceof byte[]) {
+            byte[] b = (byte[]) block;
+            System.arraycopy(b, 0, dst, off, b.length);
+            return b.length;
+        }
+        ByteBuffer b = ((ByteBuffer) block).duplicate();
+        int n = b.remaining();
+        b.get(dst, off, n);
+        return n;
+    }
+
+    private static int length(Object block) {
+        return block instanceof byte[] ? ((byte[]) block).length
+                : ((ByteBuffer) block).remaining();
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return bytes of decoded data currently cached
+     */
+    public long size() {
+        long size = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                size += s.size;
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment s : segments) {
+            synchronized (s) {
+                s.map.clear();
+                s.free.clear();
+                s.size = 0;
+            }
+        }
+    }
+
+    private final class Segment {
+        // values are byte[] or, off-heap, direct ByteBuffer
+        final LinkedHashMap<Integer, Object> map =
+                new LinkedHashMap<Integer, Object>(16, 0.75f, true);
+        final ArrayDeque<ByteBuffer> free = new ArrayDeque<ByteBuffer>();
+        final long capacity;
+        long size;
+
+        Segment(long capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Drops least recently used blocks until at most {@code limit} bytes
+         * are left.
+         */
+        void evict(long limit) {
+            Iterator<Map.Entry<Integer, Object>> it = map.entrySet()
+                    .iterator();
+            while (size > limit && it.hasNext()) {
+                Object block = it.next().getValue();
+                it.remove();
+                size -= length(block);
+                evictions.incrementAndGet();
+                if (block instanceof ByteBuffer) {
+                    free.add((ByteBuffer) block);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Block reads through a shared {@link BlockCache} against decoding every
+ * block from the {@link BlockFrameReader}, with block numbers drawn from a
+ * Zipfian (exponent 0.99, as in YCSB) or uniform distribution and the cache
+ * holding {@code cacheFraction} of the decoded data. Hit rate and evictions
+ * of each iteration are printed at its end; run with several threads
+ * ({@code -t}) to see the segment locks under contention. The cache and its
+ * parameters live in {@link Cache}, so that {@code uncached} runs once per
+ * codec and distribution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BlockCacheTest {
+
+    private static final int KEYS = 1 << 16;
+    private static final double ZIPF_EXPONENT = 0.99;
+
+    private BlockFrameReader reader;
+    private int[] keys;
+
+    @Param({ "DEFLATE", "LZ4" })
+    protected String codec;
+
+    @Param({ "65536" })
+    protected int blockSize;
+
+    @Param({ "ZIPF", "UNIFORM" })
+    protected String distribution;
+
+    @Param({ "JSON" })
+    protected String corpus;
+
+    @Param({ "67108864" })
+    protected int size;
+
+    public abstract static class Cursor {
+        private static final AtomicInteger SEED = new AtomicInteger();
+
+        int next;
+        byte[] dest;
+
+        void init(int blockSize) {
+            // spread the threads over the sequence so they do not walk it
+            // in step and hit on each other's misses
+            next = SEED.getAndIncrement() * 0x9E3779B9 >>> 16;
+            dest = new byte[blockSize];
+        }
+    }
+
+    // JMH 1.5 rejects two states of one benchmark that depend on the same
+    // state as a cycle, so the cached cursor reaches the frame through Cache
+    @State(Scope.Thread)
+    public static class UncachedCursor extends Cursor {
+        @Setup
+        public void prepare(BlockCacheTest test) {
+            init(test.blockSize);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CachedCursor extends Cursor {
+        BlockCache cache;
+
+        @Setup
+        public void prepare(Cache cache) {
+            this.cache = cache.cache;
+            init(cache.blockSize);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Cache {
+        BlockCache cache;
+        int blockSize;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        @Param({ "0.1", "0.5" })
+        protected double cacheFraction;
+
+        @Param({ "false", "true" })
+        protected boolean offHeap;
+
+        @Setup
+        public void prepare(BlockCacheTest test) {
+            cache = new BlockCache(test.reader, (long) (cacheFraction
+                    * test.size), offHeap);
+            blockSize = test.blockSize;
+        }
+
+        @TearDown(Level.Iteration)
+        public void report() {
+            long h = cache.hitCount() - hits;
+            long m = cache.missCount() - misses;
+            long e = cache.evictionCount() - evictions;
+            hits += h;
+            misses += m;
+            evictions += e;
+            if (h + m > 0) {
+                System.out.printf(" [hit rate %.4f, %d evictions]", (double) h
+                        / (h + m), e);
+            }
+        }
+    }
+
+    @Setup
+    public void prepare() throws IOException {
+        byte[] data = CompressUtils.compress(new BlockFrameCompress(
+                BlockFrame.Codec.valueOf(codec), 6, blockSize), Corpus.load(
+                corpus, size));
+        reader = new BlockFrameReader(data);
+
+        int blocks = reader.blockCount();
+        Random random = new Random(42);
+        keys = new int[KEYS];
+        if ("ZIPF".equals(distribution)) {
+            double[] cdf = new double[blocks];
+            double sum = 0;
+            for (int i = 0; i < blocks; i++) {
+                sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+                cdf[i] = sum;
+            }
+            for (int i = 0; i < KEYS; i++) {
+                int k = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+                keys[i] = Math.min(k < 0 ? -k - 1 : k, blocks - 1);
+            }
+        } else {
+            for (int i = 0; i < KEYS; i++) {
+                keys[i] = random.nextInt(blocks);
+            }
+        }
+    }
+
+    @TearDown
+    public void shutdown() {
+        reader.close();
+    }
+
+    private int nextKey(Cursor cursor) {
+        cursor.next = (cursor.next + 1) & (KEYS - 1);
+        return keys[cursor.next];
+    }
+
+    @Benchmark
+    public int cached(CachedCursor cursor) throws IOException {
+        return cursor.cache.readBlock(nextKey(cursor), cursor.dest, 0);
+    }
+
+    @Benchmark
+    public int uncached(UncachedCursor cursor) throws IOException {
+        return reader.readBlock(nextKey(cursor), cursor.dest, 0);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar BlockCacheTest -wi 5 -i 5 -f 1 -t 4
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(BlockCacheTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1)
+                .threads(4).build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+
+/**
+ * Block-at-a-time codec working on caller-supplied arrays, for the paths
+ * where {@link StreamFactory} wrappers and their intermediate buffers are the
+ * cost being measured. Implementations keep their native contexts between
+ * calls and are therefore not thread-safe.
+ */
+interface BlockCodec {
+
+    /**
+     * Worst-case compressed size of {@code len} input bytes; a {@code dst}
+     * with that much room never makes {@link #compress} fail.
+     */
+    public int maxCompressedLength(int len);
+
+    /**
+     * @return number of bytes written to {@code dst} at {@code dstOff}
+     */
+    public int compress(byte[] src, int off, int len, byte[] dst, int dstOff)
+            throws IOException;
+
+    /**
+     * @return number of bytes written to {@code dst} at {@code dstOff}
+     */
+    public int decompress(byte[] src, int off, int len, byte[] dst,
+            int dstOff) throws IOException;
+}
@@ -0,0 +1,55 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Inputs and preallocated buffers shared by {@link BlockCompressTest} and
+ * {@link NoLevelBlockCompressTest}, so that both measure the same round trip.
+ */
+@State(Scope.Thread)
+public abstract class BlockCompressHarness {
+
+    protected byte[] src;
+    protected byte[] data;
+    protected int dataLength;
+    protected byte[] dest;
+    protected BlockCodec codec;
+
+    @Param({ "LICENSE", "JSON", "RANDOM" })
+    protected String corpus;
+
+    @Param({ "4096", "262144" })
+    protected int size;
+
+    /**
+     * Compresses the corpus with {@code codec}, checking that it decompresses
+     * back to it.
+     */
+    protected void prepare(String name, BlockCodec codec) throws IOException {
+        this.codec = codec;
+        src = Corpus.load(corpus, size);
+        data = new byte[codec.maxCompressedLength(src.length)];
+        dataLength = codec.compress(src, 0, src.length, data, 0);
+        dest = new byte[src.length];
+        int n = codec.decompress(data, 0, dataLength, dest, 0);
+        if (n != src.length || !Arrays.equals(src, dest)) {
+            throw new IllegalStateException(name
+                    + " round trip does not match the input");
+        }
+    }
+
+    protected int compress(AllocationProbe probe) throws IOException {
+        probe.op();
+        return codec.compress(src, 0, src.length, data, 0);
+    }
+
+    protected int decompress(AllocationProbe probe) throws IOException {
+        probe.op();
+        return codec.decompress(data, 0, dataLength, dest, 0);
+    }
+}
@@ -0,0 +1,78 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@link BlockCodec} round trips into preallocated buffers. The
+ * {@link AllocationProbe} line printed after each iteration should read 0 B/op
+ * for the JDK codecs once warmed up. bzip2, LZ4 and Snappy have no level and
+ * run in {@link NoLevelBlockCompressTest}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BlockCompressTest extends BlockCompressHarness {
+
+    @Param({ "JDK_DEFLATE", "JDK_GZIP", "COMMONS_GZIP", "COMMONS_DEFLATE" })
+    protected String codecName;
+
+    @Param({ "1", "6", "9" })
+    protected int level;
+
+    @Setup
+    public void prepare() throws IOException {
+        prepare(codecName, newCodec(codecName, level));
+    }
+
+    static BlockCodec newCodec(String name, int level) {
+        if ("JDK_DEFLATE".equals(name)) {
+            return new DeflateBlockCodec(level, false);
+        } else if ("JDK_GZIP".equals(name)) {
+            return new GzipBlockCodec(level);
+        } else if ("COMMONS_GZIP".equals(name)) {
+            return StreamBlockCodec.commonsGzip(level);
+        } else if ("COMMONS_DEFLATE".equals(name)) {
+            return StreamBlockCodec.commonsDeflate(level);
+        }
+        throw new IllegalArgumentException("Unknown codec: " + name);
+    }
+
+    @Benchmark
+    public int compress(AllocationProbe probe) throws IOException {
+        return super.compress(probe);
+    }
+
+    @Benchmark
+    public int decompress(AllocationProbe probe) throws IOException {
+        return super.decompress(probe);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar '\.BlockCompressTest\.' -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include("\\." + BlockCompressTest.class.getSimpleName()
+                        + "\\.")
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,303 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+/**
+ * Layout of the self-describing block frame written by
+ * {@link BlockFrameWriter}. All integers are little-endian.
+ *
+ * <pre>
+ * header  magic "JBF1" | version | codec id | level | 0 | block size
+ *         (for bzip2 the level byte holds its block size, in 100 KB units)
+ * block   stored length (bit 31: raw) | raw length | CRC-32 | data ...
+ * end     0 (4 bytes, where the next block's stored length would be)
+ * index   per block: offset of its header (8) | raw length (4)
+ * footer  index offset (8) | block count (4) | total length (8) | "JIDX"
+ * </pre>
+ *
+ * Blocks are compressed independently and every block but the last holds
+ * exactly {@code block size} bytes, so the index maps an uncompressed offset
+ * straight to the block containing it. Sequential readers stop at the end
+ * marker; random-access readers start from the fixed-size footer.
+ */
+final class BlockFrame {
+
+    static final int MAGIC = 0x3146424A;
+    static final int INDEX_MAGIC = 0x5844494A;
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 12;
+    static final int BLOCK_HEADER_SIZE = 12;
+    static final int INDEX_ENTRY_SIZE = 12;
+    static final int FOOTER_SIZE = 24;
+    static final int RAW = 0x80000000;
+
+    enum Codec {
+        STORED {
+            @Override
+            BlockCodec newCodec(int level) {
+                return null;
+            }
+        },
+        DEFLATE {
+            @Override
+            BlockCodec newCodec(int level) {
+                return new DeflateBlockCodec(level, true);
+            }
+        },
+        BZIP2 {
+            // bzip2 has no level: the frame stores its block size instead
+            @Override
+            int headerLevel(int level) {
+                return CompressSizeTest.BZIP2_BLOCK_SIZE;
+            }
+
+            @Override
+            BlockCodec newCodec(int bzip2BlockSize) {
+                return StreamBlockCodec.commonsBZip2(bzip2BlockSize);
+            }
+        },
+        LZ4 {
+            @Override
+            BlockCodec newCodec(int level) {
+                return Lz4BlockCodec.fast();
+            }
+        },
+        SNAPPY {
+            @Override
+            BlockCodec newCodec(int level) {
+                return new SnappyBlockCodec();
+            }
+        };
+
+        /**
+         * @return what the header records for a frame written at
+         *         {@code level}, and what {@link #newCodec} is given
+         */
+        int headerLevel(int level) {
+            return level;
+        }
+
+        /**
+         * @return a codec for one thread, or null when blocks are stored
+         */
+        abstract BlockCodec newCodec(int level);
+
+        static void release(BlockCodec codec) {
+            if (codec instanceof DeflateBlockCodec) {
+                ((DeflateBlockCodec) codec).end();
+            }
+        }
+    }
+
+    static final class Header {
+        final Codec codec;
+        final int level;
+        final int blockSize;
+
+        Header(Codec codec, int level, int blockSize) {
+            this.codec = codec;
+            this.level = level;
+            this.blockSize = blockSize;
+        }
+    }
+
+    static final class Footer {
+        final long indexOffset;
+        final int count;
+        final long length;
+
+        Footer(long indexOffset, int count, long length) {
+            this.indexOffset = indexOffset;
+            this.count = count;
+            this.length = length;
+        }
+    }
+
+    static final class Index {
+        final long[] offsets;
+        final int[] lengths;
+        final long length;
+
+        Index(long[] offsets, int[] lengths, long length) {
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.length = length;
+        }
+    }
+
+    private BlockFrame() {
+    }
+
+    static ByteBuffer order(ByteBuffer b) {
+        return b.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static byte[] header(Header h) {
+        ByteBuffer b = order(ByteBuffer.allocate(HEADER_SIZE));
+        b.putInt(MAGIC).put((byte) VERSION).put((byte) h.codec.ordinal())
+                .put((byte) h.level).put((byte) 0).putInt(h.blockSize);
+        return b.array();
+    }
+
+    /**
+     * @param b the first {@link #HEADER_SIZE} bytes of a frame, from its
+     *        position on
+     */
+    static Header readHeader(ByteBuffer b) throws IOException {
+        b = order(b.duplicate());
+        if (b.remaining() < HEADER_SIZE || b.getInt() != MAGIC) {
+            throw new IOException("Not a block frame");
+        }
+        int version = b.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported block frame version: "
+                    + version);
+        }
+        int id = b.get() & 0xff;
+        if (id >= Codec.values().length) {
+            throw new IOException("Unknown codec id: " + id);
+        }
+        Codec codec = Codec.values()[id];
+        int level = b.get();
+        if (codec == Codec.BZIP2 && (level < 1 || level > 9)) {
+            throw new IOException("Invalid bzip2 block size: " + level);
+        }
+        b.get();
+        int blockSize = b.getInt();
+        if (blockSize <= 0) {
+            throw new IOException("Invalid block size: " + blockSize);
+        }
+        return new Header(codec, level, blockSize);
+    }
+
+    /**
+     * @param b the last {@link #FOOTER_SIZE} bytes of a frame of
+     *        {@code frameSize} bytes, from its position on
+     */
+    static Footer readFooter(ByteBuffer b, long frameSize) throws IOException {
+        b = order(b.duplicate());
+        if (frameSize < HEADER_SIZE + 4 + FOOTER_SIZE
+                || b.remaining() < FOOTER_SIZE) {
+            throw new IOException("Truncated block frame");
+        }
+        long indexOffset = b.getLong();
+        int count = b.getInt();
+        long length = b.getLong();
+        if (b.getInt() != INDEX_MAGIC || count < 0
+                || indexOffset < HEADER_SIZE + 4
+                || indexOffset + (long) count * INDEX_ENTRY_SIZE
+                        + FOOTER_SIZE != frameSize) {
+            throw new IOException("Corrupt block frame footer");
+        }
+        return new Footer(indexOffset, count, length);
+    }
+
+    /**
+     * @param b the {@code footer.count} index entries, from its position on
+     */
+    static Index readIndex(ByteBuffer b, Footer footer, int blockSize)
+            throws IOException {
+        b = order(b.duplicate());
+        int count = footer.count;
+        long[] offsets = new long[count];
+        int[] lengths = new int[count];
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = b.getLong();
+            lengths[i] = b.getInt();
+            boolean badLength = i < count - 1 ? lengths[i] != blockSize
+                    : lengths[i] <= 0 || lengths[i] > blockSize;
+            if (badLength || offsets[i] < HEADER_SIZE
+                    || offsets[i] >= footer.indexOffset
+                    || i > 0 && offsets[i] <= offsets[i - 1]) {
+                throw new IOException("Corrupt block frame index entry " + i);
+            }
+            total += lengths[i];
+        }
+        if (total != footer.length) {
+            throw new IOException("Block frame length mismatch");
+        }
+        return new Index(offsets, lengths, total);
+    }
+
+    /**
+     * Reads up to {@code len} bytes starting at uncompressed offset
+     * {@code pos}, fetching only the blocks they fall in. Whole blocks go
+     * straight to {@code dst}, partial ones through {@code scratch}.
+     *
+     * @param scratch room for one block
+     * @return number of bytes read, -1 at or past the end
+     */
+    static int read(BlockSource source, byte[] scratch, long pos, byte[] dst,
+            int off, int len) throws IOException {
+        long length = source.length();
+        if (pos >= length) {
+            return -1;
+        }
+        len = (int) Math.min(len, length - pos);
+        int blockSize = source.blockSize();
+        int done = 0;
+        while (done < len) {
+            int i = (int) (pos / blockSize);
+            int skip = (int) (pos - (long) i * blockSize);
+            int blockLength = (int) Math.min(blockSize, length - (long) i
+                    * blockSize);
+            int n = Math.min(len - done, blockLength - skip);
+            if (skip == 0 && n == blockLength) {
+                source.readBlock(i, dst, off + done);
+            } else {
+                source.readBlock(i, scratch, 0);
+                System.arraycopy(scratch, skip, dst, off + done, n);
+            }
+            done += n;
+            pos += n;
+        }
+        return len;
+    }
+
+    /**
+     * Total size of the block starting with this stored-length word.
+     */
+    static int blockSize(int storedLength) {
+        return BLOCK_HEADER_SIZE + (storedLength & ~RAW);
+    }
+
+    /**
+     * Decodes the block whose header starts at {@code src[off]} and checks
+     * its CRC.
+     *
+     * @param codec the frame's codec, null for {@link Codec#STORED}
+     * @return the block's raw length
+     */
+    static int decodeBlock(BlockCodec codec, byte[] src, int off, byte[] dst,
+            int dstOff) throws IOException {
+        int stored = GzipFormat.readInt(src, off);
+        int rawLength = GzipFormat.readInt(src, off + 4);
+        int crc = GzipFormat.readInt(src, off + 8);
+        int len = stored & ~RAW;
+        int data = off + BLOCK_HEADER_SIZE;
+        if (rawLength < 0 || rawLength > dst.length - dstOff
+                || len > src.length - data) {
+            throw new ZipException("Corrupt block header");
+        }
+        if ((stored & RAW) != 0 || codec == null) {
+            if (len != rawLength) {
+                throw new ZipException("Corrupt raw block");
+            }
+            System.arraycopy(src, data, dst, dstOff, len);
+        } else if (codec.decompress(src, data, len, dst, dstOff) != rawLength) {
+            throw new ZipException("Block length mismatch");
+        }
+        CRC32 check = new CRC32();
+        check.update(dst, dstOff, rawLength);
+        if ((int) check.getValue() != crc) {
+            throw new ZipException("Block CRC mismatch");
+        }
+        return rawLength;
+    }
+}
@@ -0,0 +1,122 @@
+package com.chenshu.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link StreamFactory} for {@link BlockFrame}s. Reading is sequential and
+ * stops at the end marker, so the index is never needed; the codec comes
+ * from the frame header, not from this factory.
+ */
+class BlockFrameCompress implements StreamFactory {
+
+    private final BlockFrame.Codec codec;
+    private final int level;
+    private final int blockSize;
+
+    public BlockFrameCompress(BlockFrame.Codec codec, int level,
+            int blockSize) {
+        this.codec = codec;
+        this.level = level;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public InputStream getInputStream(InputStream in) throws IOException {
+        return new BlockFrameInputStream(in);
+    }
+
+    @Override
+    public OutputStream getOutputStream(OutputStream out) throws IOException {
+        return new BlockFrameWriter(out, codec, level, blockSize);
+    }
+
+    static class BlockFrameInputStream extends InputStream {
+        private final InputStream in;
+        private final BlockCodec codec;
+        private byte[] packed;
+        private final byte[] buf;
+        private int pos;
+        private int limit;
+        private boolean eof;
+
+        BlockFrameInputStream(InputStream in) throws IOException {
+            this.in = in;
+            byte[] h = new byte[BlockFrame.HEADER_SIZE];
+            readFully(h, 0, h.length);
+            BlockFrame.Header header = BlockFrame.readHeader(ByteBuffer
+                    .wrap(h));
+            this.codec = header.codec.newCodec(header.level);
+            this.buf = new byte[header.blockSize];
+            this.packed = new byte[BlockFrame.BLOCK_HEADER_SIZE];
+        }
+
+        private void readFully(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = in.read(b, off, len);
+                if (n == -1) {
+                    throw new EOFException("Unexpected end of block frame");
+                }
+                off += n;
+                len -= n;
+            }
+        }
+
+        private boolean nextBlock() throws IOException {
+            readFully(packed, 0, 4);
+            int stored = GzipFormat.readInt(packed, 0);
+            if (stored == 0) {
+                eof = true;
+                return false;
+            }
+            int size = BlockFrame.blockSize(stored);
+            if (size < 0 || size - BlockFrame.BLOCK_HEADER_SIZE > buf.length
+                    + (codec == null ? 0 : codec
+                            .maxCompressedLength(buf.length))) {
+                throw new IOException("Corrupt block header");
+            }
+            if (packed.length < size) {
+                byte[] b = new byte[size];
+                System.arraycopy(packed, 0, b, 0, 4);
+                packed = b;
+            }
+            readFully(packed, 4, size - 4);
+            limit = BlockFrame.decodeBlock(codec, packed, 0, buf, 0);
+            pos = 0;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos == limit && (eof || !nextBlock())) {
+                return -1;
+            }
+            return buf[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (pos == limit) {
+                if (eof || !nextBlock()) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            BlockFrame.Codec.release(codec);
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Random-access and parallel reader for an in-memory {@link BlockFrame}.
+ * Each thread decodes with its own codec, so a reader can be shared; call
+ * {@link #close()} to release the codecs' native contexts.
+ */
+class BlockFrameReader implements BlockSource {
+
+    private final byte[] data;
+    private final BlockFrame.Header header;
+    private final BlockFrame.Index index;
+    private final List<BlockCodec> codecs = Collections
+            .synchronizedList(new ArrayList<BlockCodec>());
+    private final ThreadLocal<BlockCodec> codec =
+            new ThreadLocal<BlockCodec>() {
+            @Override
+            protected BlockCodec initialValue() {
+                BlockCodec c = header.codec.newCodec(header.level);
+                codecs.add(c);
+                return c;
+            }
+        };
+    private final ThreadLocal<byte[]> scratch = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[header.blockSize];
+        }
+    };
+
+    public BlockFrameReader(byte[] data) throws IOException {
+        this.data = data;
+        ByteBuffer b = ByteBuffer.wrap(data);
+        this.header = BlockFrame.readHeader(b);
+        b.position(data.length - BlockFrame.FOOTER_SIZE);
+        BlockFrame.Footer footer = BlockFrame.readFooter(b, data.length);
+        b.position((int) footer.indexOffset);
+        this.index = BlockFrame.readIndex(b, footer, header.blockSize);
+    }
+
+    public BlockFrame.Codec codec() {
+        return header.codec;
+    }
+
+    @Override
+    public int blockSize() {
+        return header.blockSize;
+    }
+
+    @Override
+    public int blockCount() {
+        return index.offsets.length;
+    }
+
+    @Override
+    public long length() {
+        return index.length;
+    }
+
+    @Override
+    public int readBlock(int i, byte[] dst, int off) throws IOException {
+        return BlockFrame.decodeBlock(codec.get(), data,
+                (int) index.offsets[i], dst, off);
+    }
+
+    /**
+     * Reads up to {@code len} bytes starting at uncompressed offset
+     * {@code pos}, decoding only the blocks they fall in.
+     *
+     * @return number of bytes read, -1 at or past the end
+     */
+    public int read(long pos, byte[] dst, int off, int len)
+            throws IOException {
+        return BlockFrame.read(this, scratch.get(), pos, dst, off, len);
+    }
+
+    /**
+     * Decodes the whole frame on the calling thread.
+     */
+    public byte[] readAll() throws IOException {
+        byte[] dst = new byte[checkedLength()];
+        for (int i = 0; i < blockCount(); i++) {
+            readBlock(i, dst, i * header.blockSize);
+        }
+        return dst;
+    }
+
+    /**
+     * Decodes the blocks concurrently, each straight into its slot of the
+     * result.
+     */
+    public byte[] readAll(ForkJoinPool pool) throws IOException {
+        final byte[] dst = new byte[checkedLength()];
+        List<Future<Integer>> parts = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < blockCount(); i++) {
+            final int block = i;
+            parts.add(pool.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws IOException {
+                    return readBlock(block, dst, block * header.blockSize);
+                }
+            }));
+        }
+        for (Future<Integer> part : parts) {
+            get(part);
+        }
+        return dst;
+    }
+
+    private int checkedLength() throws IOException {
+        if (index.length > Integer.MAX_VALUE - 8) {
+            throw new IOException("Frame too large for an array: "
+                    + index.length);
+        }
+        return (int) index.length;
+    }
+
+    private static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e
+                    .getCause() : new IOException(e.getCause());
+        }
+    }
+
+    public void close() {
+        synchronized (codecs) {
+            for (BlockCodec c : codecs) {
+                BlockFrame.Codec.release(c);
+            }
+            codecs.clear();
+        }
+    }
+}
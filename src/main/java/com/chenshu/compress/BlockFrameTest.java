@@ -0,0 +1,155 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@link BlockFrame} writing, whole-frame decoding on one thread, through the
+ * stream reader and on {@code parallelism} pool threads, and point reads that
+ * decode a single block. Frame size and block count are printed in setup.
+ * Only the parallel decode depends on {@code parallelism}, which lives in
+ * {@link Pool} so that the other benchmarks run once per codec and block size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BlockFrameTest {
+
+    private byte[] src;
+    private byte[] data;
+    private BlockFrameCompress factory;
+    private BlockFrameReader reader;
+    private long[] offsets;
+    private int next;
+    private byte[] dest;
+
+    @Param({ "DEFLATE", "LZ4", "BZIP2" })
+    protected String codec;
+
+    @Param({ "6" })
+    protected int level;
+
+    @Param({ "65536", "1048576" })
+    protected int blockSize;
+
+    @Param({ "4096" })
+    protected int readSize;
+
+    @Param({ "JSON" })
+    protected String corpus;
+
+    @Param({ "16777216" })
+    protected int size;
+
+    @State(Scope.Thread)
+    public static class Pool {
+        ForkJoinPool pool;
+
+        @Param({ "1", "2", "4" })
+        protected int parallelism;
+
+        @Setup
+        public void prepare(BlockFrameTest test) throws IOException {
+            pool = new ForkJoinPool(parallelism);
+            check(test.reader.readAll(pool), test.src);
+        }
+
+        @TearDown
+        public void shutdown() {
+            pool.shutdown();
+        }
+    }
+
+    @Setup
+    public void prepare() throws IOException {
+        src = Corpus.load(corpus, size);
+        factory = new BlockFrameCompress(BlockFrame.Codec.valueOf(codec),
+                level, blockSize);
+        data = CompressUtils.compress(factory, src);
+        reader = new BlockFrameReader(data);
+        System.out.println("frame: " + data.length + " bytes, "
+                + reader.blockCount() + " blocks");
+
+        Random random = new Random(42);
+        offsets = new long[1024];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = random.nextInt(size - readSize);
+        }
+        dest = new byte[readSize];
+        check(reader.readAll(), src);
+        check(CompressUtils.decompress(factory, data, size), src);
+    }
+
+    static void check(byte[] actual, byte[] expected) {
+        if (!Arrays.equals(actual, expected)) {
+            throw new IllegalStateException(
+                    "Decoded frame does not match the input");
+        }
+    }
+
+    @TearDown
+    public void shutdown() {
+        reader.close();
+    }
+
+    private long nextOffset() {
+        next = (next + 1) & (offsets.length - 1);
+        return offsets[next];
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        return CompressUtils.compress(factory, src).length;
+    }
+
+    @Benchmark
+    public int streamDecode() throws IOException {
+        return CompressUtils.decompress(factory, data, size).length;
+    }
+
+    @Benchmark
+    public int sequentialDecode() throws IOException {
+        return reader.readAll().length;
+    }
+
+    @Benchmark
+    public int parallelDecode(Pool pool) throws IOException {
+        return reader.readAll(pool.pool).length;
+    }
+
+    @Benchmark
+    public int randomRead() throws IOException {
+        return reader.read(nextOffset(), dest, 0, readSize);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar BlockFrameTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(BlockFrameTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
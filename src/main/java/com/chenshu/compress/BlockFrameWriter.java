@@ -0,0 +1,131 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Writes a {@link BlockFrame}: input is cut into {@code blockSize} pieces,
+ * each compressed on its own and stored raw when that does not make it
+ * smaller, and {@link #close()} appends the block index.
+ */
+class BlockFrameWriter extends OutputStream {
+
+    private final OutputStream out;
+    private final BlockFrame.Codec codec;
+    private final BlockCodec blockCodec;
+    private final byte[] block;
+    private final byte[] packed;
+    private final CRC32 crc = new CRC32();
+    private int count;
+    private long position;
+    private long length;
+    private long[] offsets = new long[16];
+    private int[] lengths = new int[16];
+    private int blocks;
+    private boolean closed;
+
+    public BlockFrameWriter(OutputStream out, BlockFrame.Codec codec,
+            int level, int blockSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid block size: "
+                    + blockSize);
+        }
+        this.out = out;
+        this.codec = codec;
+        level = codec.headerLevel(level);
+        this.blockCodec = codec.newCodec(level);
+        this.block = new byte[blockSize];
+        this.packed = new byte[BlockFrame.BLOCK_HEADER_SIZE
+                + (blockCodec == null ? 0 : blockCodec
+                        .maxCompressedLength(blockSize))];
+        byte[] header = BlockFrame.header(new BlockFrame.Header(codec, level,
+                blockSize));
+        out.write(header);
+        position = header.length;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, block.length - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == block.length) {
+                writeBlock();
+            }
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        crc.reset();
+        crc.update(block, 0, count);
+        int stored = BlockFrame.RAW | count;
+        if (codec != BlockFrame.Codec.STORED) {
+            int n = blockCodec.compress(block, 0, count, packed,
+                    BlockFrame.BLOCK_HEADER_SIZE);
+            if (n < count) {
+                stored = n;
+            }
+        }
+        GzipFormat.writeInt(packed, 0, stored);
+        GzipFormat.writeInt(packed, 4, count);
+        GzipFormat.writeInt(packed, 8, (int) crc.getValue());
+        out.write(packed, 0, BlockFrame.BLOCK_HEADER_SIZE);
+        if (stored < 0) {
+            out.write(block, 0, count);
+        } else {
+            out.write(packed, BlockFrame.BLOCK_HEADER_SIZE, stored);
+        }
+
+        if (blocks == offsets.length) {
+            offsets = Arrays.copyOf(offsets, blocks * 2);
+            lengths = Arrays.copyOf(lengths, blocks * 2);
+        }
+        offsets[blocks] = position;
+        lengths[blocks] = count;
+        blocks++;
+        position += BlockFrame.blockSize(stored);
+        length += count;
+        count = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0) {
+                writeBlock();
+            }
+            ByteBuffer tail = BlockFrame.order(ByteBuffer.allocate(4 + blocks
+                    * BlockFrame.INDEX_ENTRY_SIZE + BlockFrame.FOOTER_SIZE));
+            tail.putInt(0);
+            for (int i = 0; i < blocks; i++) {
+                tail.putLong(offsets[i]).putInt(lengths[i]);
+            }
+            tail.putLong(position + 4).putInt(blocks).putLong(length)
+                    .putInt(BlockFrame.INDEX_MAGIC);
+            out.write(tail.array());
+            out.close();
+        } finally {
+            BlockFrame.Codec.release(blockCodec);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+
+/**
+ * Uncompressed data addressed in fixed-size blocks, every block but the last
+ * holding exactly {@link #blockSize()} bytes. Implementations are safe for
+ * concurrent readers.
+ */
+interface BlockSource {
+
+    public int blockSize();
+
+    public int blockCount();
+
+    public long length();
+
+    /**
+     * Copies block {@code i} into {@code dst}, which must have room for
+     * {@link #blockSize()} bytes or, for the last block, its actual length.
+     *
+     * @return the block's length
+     */
+    public int readBlock(int i, byte[] dst, int off) throws IOException;
+}
@@ -0,0 +1,168 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * zlib on data that starts and ends in {@link ByteBuffer}s, heap or direct:
+ * the stream path copies the payload into an array, runs
+ * {@code CommonsDeflateCompress} through {@link CompressUtils} and puts the
+ * result back into a buffer, the channel path hands the buffers to
+ * {@link ChannelDeflate}, either directly or behind channels on both sides.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChannelCompressTest {
+
+    private ByteBuffer src;
+    private ByteBuffer data;
+    private ByteBuffer dest;
+    private StreamFactory stream;
+    private ChannelDeflate channel;
+
+    @Param({ "HEAP", "DIRECT" })
+    protected String buffer;
+
+    @Param({ "6" })
+    protected int level;
+
+    @Param({ "JSON" })
+    protected String corpus;
+
+    @Param({ "1024", "65536", "1048576" })
+    protected int size;
+
+    private ByteBuffer allocate(int capacity) {
+        return "DIRECT".equals(buffer) ? ByteBuffer.allocateDirect(capacity)
+                : ByteBuffer.allocate(capacity);
+    }
+
+    @Setup
+    public void prepare() throws IOException {
+        byte[] b = Corpus.load(corpus, size);
+        stream = new CompressSizeTest.CommonsDeflateCompress(level);
+        channel = new ChannelDeflate(ZlibPool.Mode.THREAD_LOCAL, 1, level,
+                false);
+        src = allocate(size);
+        src.put(b).flip();
+        byte[] z = CompressUtils.compress(stream, b);
+        data = allocate(z.length);
+        data.put(z).flip();
+        dest = allocate(Math.max(size, z.length) + 64);
+
+        channel.compress(src.duplicate(), new ChannelDeflate.BufferChannel(
+                dest));
+        check(dest, data, "compress");
+        channel.compress(new ChannelDeflate.BufferChannel(src.duplicate()),
+                new ChannelDeflate.BufferChannel(dest));
+        check(dest, data, "channel compress");
+        channel.decompress(data.duplicate(),
+                new ChannelDeflate.BufferChannel(dest));
+        check(dest, src, "decompress");
+        channel.decompress(new ChannelDeflate.BufferChannel(data.duplicate()),
+                new ChannelDeflate.BufferChannel(dest));
+        check(dest, src, "channel decompress");
+    }
+
+    private void check(ByteBuffer actual, ByteBuffer expected, String what) {
+        actual.flip();
+        if (!actual.equals(expected)) {
+            throw new IllegalStateException(what + " does not round-trip");
+        }
+        actual.clear();
+    }
+
+    @Benchmark
+    public int streamCompress(ThroughputCounters counters) throws IOException {
+        ByteBuffer in = src.duplicate();
+        byte[] b = new byte[in.remaining()];
+        in.get(b);
+        byte[] z = CompressUtils.compress(stream, b);
+        dest.clear();
+        dest.put(z);
+        counters.add(size, z.length);
+        return z.length;
+    }
+
+    @Benchmark
+    public long channelCompress(ThroughputCounters counters)
+            throws IOException {
+        dest.clear();
+        long n = channel.compress(src.duplicate(),
+                new ChannelDeflate.BufferChannel(dest));
+        counters.add(size, n);
+        return n;
+    }
+
+    @Benchmark
+    public long channelToChannelCompress(ThroughputCounters counters)
+            throws IOException {
+        dest.clear();
+        long n = channel.compress(new ChannelDeflate.BufferChannel(src
+                .duplicate()), new ChannelDeflate.BufferChannel(dest));
+        counters.add(size, n);
+        return n;
+    }
+
+    @Benchmark
+    public int streamDecompress(ThroughputCounters counters)
+            throws IOException {
+        ByteBuffer in = data.duplicate();
+        byte[] z = new byte[in.remaining()];
+        in.get(z);
+        byte[] b = CompressUtils.decompress(stream, z, size);
+        dest.clear();
+        dest.put(b);
+        counters.add(b.length, z.length);
+        return b.length;
+    }
+
+    @Benchmark
+    public long channelDecompress(ThroughputCounters counters)
+            throws IOException {
+        dest.clear();
+        long n = channel.decompress(data.duplicate(),
+                new ChannelDeflate.BufferChannel(dest));
+        counters.add(n, data.remaining());
+        return n;
+    }
+
+    @Benchmark
+    public long channelToChannelDecompress(ThroughputCounters counters)
+            throws IOException {
+        dest.clear();
+        long n = channel.decompress(new ChannelDeflate.BufferChannel(data
+                .duplicate()), new ChannelDeflate.BufferChannel(dest));
+        counters.add(n, data.remaining());
+        return n;
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar ChannelCompressTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ChannelCompressTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
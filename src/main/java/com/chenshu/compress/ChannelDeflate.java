@@ -0,0 +1,274 @@
+package com.chenshu.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * zlib (or raw deflate) from a {@link ByteBuffer} or
+ * {@link ReadableByteChannel} to a {@link WritableByteChannel}, with pooled
+ * zlib contexts and pooled direct buffers for the channel side.
+ * <p>
+ * {@link Deflater} and {@link Inflater} only take arrays before Java 11, so
+ * direct input is moved through a per-thread staging array in
+ * {@link #BUFFER_SIZE} pieces and output goes from a staging array into a
+ * direct buffer for the channel write, the copy a heap buffer write would
+ * make into the JDK's temporary direct buffer anyway. Heap input is handed to
+ * zlib in place.
+ */
+class ChannelDeflate {
+
+    static final int BUFFER_SIZE = 65536;
+
+    private final DeflaterPool deflaters;
+    private final InflaterPool inflaters;
+    // separate pools so a thread-local one holds both buffers of a
+    // channel-to-channel call
+    private final DirectBufferPool inputs;
+    private final DirectBufferPool outputs;
+    private final ThreadLocal<byte[][]> staging = new ThreadLocal<byte[][]>() {
+        @Override
+        protected byte[][] initialValue() {
+            return new byte[][] { new byte[BUFFER_SIZE],
+                    new byte[BUFFER_SIZE] };
+        }
+    };
+
+    public ChannelDeflate(ZlibPool.Mode mode, int capacity, int level,
+            boolean nowrap) {
+        this.deflaters = new DeflaterPool(mode, capacity, level, nowrap);
+        this.inflaters = new InflaterPool(mode, capacity, nowrap);
+        this.inputs = new DirectBufferPool(mode, capacity, BUFFER_SIZE);
+        this.outputs = new DirectBufferPool(mode, capacity, BUFFER_SIZE);
+    }
+
+    /**
+     * Compresses the remaining bytes of {@code src} into {@code out}.
+     *
+     * @return number of compressed bytes written
+     */
+    public long compress(ByteBuffer src, WritableByteChannel out)
+            throws IOException {
+        Deflater def = deflaters.acquire();
+        ByteBuffer buf = outputs.acquire();
+        try {
+            long n = deflate(def, src, buf, out);
+            return n + finish(def, buf, out);
+        } finally {
+            outputs.release(buf);
+            deflaters.release(def);
+        }
+    }
+
+    /**
+     * Compresses everything {@code in} delivers into {@code out}.
+     *
+     * @return number of compressed bytes written
+     */
+    public long compress(ReadableByteChannel in, WritableByteChannel out)
+            throws IOException {
+        Deflater def = deflaters.acquire();
+        ByteBuffer src = inputs.acquire();
+        ByteBuffer buf = outputs.acquire();
+        try {
+            long n = 0;
+            while (in.read(src) != -1) {
+                src.flip();
+                n += deflate(def, src, buf, out);
+                src.clear();
+            }
+            return n + finish(def, buf, out);
+        } finally {
+            outputs.release(buf);
+            inputs.release(src);
+            deflaters.release(def);
+        }
+    }
+
+    private long deflate(Deflater def, ByteBuffer src, ByteBuffer buf,
+            WritableByteChannel out) throws IOException {
+        long n = 0;
+        while (src.hasRemaining()) {
+            int len;
+            if (src.hasArray()) {
+                len = src.remaining();
+                def.setInput(src.array(), src.arrayOffset() + src.position(),
+                        len);
+            } else {
+                byte[] in = staging.get()[0];
+                len = Math.min(src.remaining(), in.length);
+                src.get(in, 0, len);
+                def.setInput(in, 0, len);
+            }
+            n += drain(def, buf, out);
+            if (src.hasArray()) {
+                src.position(src.position() + len);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Deflates until the current input is consumed.
+     */
+    private long drain(Deflater def, ByteBuffer buf, WritableByteChannel out)
+            throws IOException {
+        byte[] b = staging.get()[1];
+        long n = 0;
+        while (!def.needsInput()) {
+            n += write(b, def.deflate(b, 0, b.length), buf, out);
+        }
+        return n;
+    }
+
+    private long finish(Deflater def, ByteBuffer buf, WritableByteChannel out)
+            throws IOException {
+        byte[] b = staging.get()[1];
+        def.finish();
+        long n = 0;
+        while (!def.finished()) {
+            n += write(b, def.deflate(b, 0, b.length), buf, out);
+        }
+        return n;
+    }
+
+    /**
+     * Decompresses the stream starting at {@code src}'s position into
+     * {@code out}; data after its end is left in {@code src}.
+     *
+     * @return number of decompressed bytes written
+     */
+    public long decompress(ByteBuffer src, WritableByteChannel out)
+            throws IOException {
+        Inflater inf = inflaters.acquire();
+        ByteBuffer buf = outputs.acquire();
+        try {
+            long n = inflate(inf, src, buf, out);
+            if (!inf.finished()) {
+                throw new EOFException("Unexpected end of deflate stream");
+            }
+            return n;
+        } finally {
+            outputs.release(buf);
+            inflaters.release(inf);
+        }
+    }
+
+    /**
+     * Decompresses the stream {@code in} delivers into {@code out}.
+     *
+     * @return number of decompressed bytes written
+     */
+    public long decompress(ReadableByteChannel in, WritableByteChannel out)
+            throws IOException {
+        Inflater inf = inflaters.acquire();
+        ByteBuffer src = inputs.acquire();
+        ByteBuffer buf = outputs.acquire();
+        try {
+            long n = 0;
+            while (!inf.finished() && in.read(src) != -1) {
+                src.flip();
+                n += inflate(inf, src, buf, out);
+                src.compact();
+            }
+            if (!inf.finished()) {
+                throw new EOFException("Unexpected end of deflate stream");
+            }
+            return n;
+        } finally {
+            outputs.release(buf);
+            inputs.release(src);
+            inflaters.release(inf);
+        }
+    }
+
+    private long inflate(Inflater inf, ByteBuffer src, ByteBuffer buf,
+            WritableByteChannel out) throws IOException {
+        byte[][] arrays = staging.get();
+        long n = 0;
+        try {
+            while (src.hasRemaining() && !inf.finished()) {
+                int len;
+                if (src.hasArray()) {
+                    len = src.remaining();
+                    inf.setInput(src.array(), src.arrayOffset()
+                            + src.position(), len);
+                } else {
+                    len = Math.min(src.remaining(), arrays[0].length);
+                    src.duplicate().get(arrays[0], 0, len);
+                    inf.setInput(arrays[0], 0, len);
+                }
+                int k;
+                while ((k = inf.inflate(arrays[1])) > 0 || !inf.needsInput()
+                        && !inf.finished() && !inf.needsDictionary()) {
+                    n += write(arrays[1], k, buf, out);
+                }
+                if (inf.needsDictionary()) {
+                    throw new ZipException("Preset dictionary required");
+                }
+                // consumed input only; the rest may belong to what follows
+                src.position(src.position() + len - inf.getRemaining());
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+        return n;
+    }
+
+    private static int write(byte[] b, int len, ByteBuffer buf,
+            WritableByteChannel out) throws IOException {
+        buf.clear();
+        buf.put(b, 0, len).flip();
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+        return len;
+    }
+
+    /**
+     * Channel view of a {@link ByteBuffer}: reads drain it, writes fill it.
+     */
+    static class BufferChannel implements ReadableByteChannel,
+            WritableByteChannel {
+        private final ByteBuffer buffer;
+
+        BufferChannel(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(dst.remaining(), buffer.remaining());
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(slice.position() + n);
+            dst.put(slice);
+            buffer.position(buffer.position() + n);
+            return n;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            buffer.put(src);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Corpus, size and stream plumbing shared by {@link CompressTest} and
+ * {@link NoLevelCompressTest}, so both sweep the same inputs and measure the
+ * same code path.
+ */
+@State(Scope.Thread)
+public abstract class CompressHarness {
+
+    protected byte[] src;
+
+    // defaults kept to a run of well under an hour; see CompressTest.main
+    // for the full sweep
+    @Param({ "LICENSE", "JSON", "RECORDS" })
+    protected String corpus;
+
+    @Param({ "4096", "262144" })
+    protected int size;
+
+    /**
+     * Compressed form of the corpus, checked to decompress back to it.
+     */
+    protected byte[] prepareData(StreamFactory factory) throws IOException {
+        return CompressUtils.roundTrip(factory, src);
+    }
+
+    protected byte[] getCompressContent(StreamFactory factory)
+            throws IOException {
+        // pooled chunks instead of a ByteArrayOutputStream of src.length,
+        // which allocated the whole input size per call before compressing
+        SegmentedByteSink sink = new SegmentedByteSink();
+        try {
+            OutputStream out = factory.getOutputStream(sink);
+            try {
+                out.write(src);
+            } finally {
+                out.close();
+            }
+            return sink.toByteArray();
+        } finally {
+            sink.release();
+        }
+    }
+
+    protected int compress(StreamFactory factory, ThroughputCounters counters)
+            throws IOException {
+        int n = getCompressContent(factory).length;
+        counters.add(src.length, n);
+        return n;
+    }
+
+    protected int decompress(StreamFactory factory, byte[] data,
+            ThroughputCounters counters) throws IOException {
+        // decoded straight into an array of the known size; going through
+        // a scratch buffer and a ByteArrayOutputStream cost two extra
+        // copies of the output per call
+        byte[] dest = new byte[src.length];
+        int n = CompressUtils.decompress(factory, data, dest, 0);
+        if (n != src.length) {
+            throw new IOException("Decompressed " + n + " of " + src.length
+                    + " bytes");
+        }
+        counters.add(n, data.length);
+        return n;
+    }
+}
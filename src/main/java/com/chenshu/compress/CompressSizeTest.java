@@ -6,8 +6,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -23,31 +21,32 @@ import org.apache.commons.compress.compressors.gzip.GzipParameters;
 
 public class CompressSizeTest {
 
-    interface StreamFactory {
-
-        public InputStream getInputStream(final InputStream in)
-                throws IOException;
-
-        public OutputStream getOutputStream(final OutputStream out)
-                throws IOException;
-    }
-
     static class JdkGzipCompress implements StreamFactory {
+        /** what GZIPInputStream and GZIPOutputStream use when not told */
+        static final int DEFAULT_BUFFER_SIZE = 512;
+
         int level;
+        // bytes zlib gets per JNI call
+        int bufferSize;
 
         public JdkGzipCompress(int level) {
+            this(level, DEFAULT_BUFFER_SIZE);
+        }
+
+        public JdkGzipCompress(int level, int bufferSize) {
             this.level = level;
+            this.bufferSize = bufferSize;
         }
 
         @Override
         public InputStream getInputStream(InputStream in) throws IOException {
-            return new GZIPInputStream(in);
+            return new GZIPInputStream(in, bufferSize);
         }
 
         @Override
         public OutputStream getOutputStream(OutputStream out)
                 throws IOException {
-            return new GZIPOutputStream(out) {
+            return new GZIPOutputStream(out, bufferSize) {
                 {
                     def.setLevel(level);
                 }
@@ -76,6 +75,13 @@ public class CompressSizeTest {
         }
     }
 
+    /**
+     * bzip2 has no level; where a codec is picked by name and level (the
+     * {@link BlockFrame} header) it gets this block size (in 100 KB units),
+     * the one {@code bzip2} itself defaults to.
+     */
+    static final int BZIP2_BLOCK_SIZE = 9;
+
     static class CommonsBZip2Compress implements StreamFactory {
         int blockSize;
 
@@ -116,6 +122,17 @@ public class CompressSizeTest {
         }
     }
 
+    static StreamFactory newFactory(String name, int level) {
+        if ("JDK_GZIP".equals(name)) {
+            return new JdkGzipCompress(level);
+        } else if ("COMMONS_GZIP".equals(name)) {
+            return new CommonsGzipCompress(level);
+        } else if ("COMMONS_DEFLATE".equals(name)) {
+            return new CommonsDeflateCompress(level);
+        }
+        throw new IllegalArgumentException("Unknown codec: " + name);
+    }
+
     public static int compress(StreamFactory factory, byte[] src) {
         byte[] dest = null;
 
@@ -189,18 +206,34 @@ public class CompressSizeTest {
         return bs.length;
     }
 
+    /**
+     * 
+     * java -cp target/benchmarks.jar com.chenshu.compress.CompressSizeTest [size]
+     * 
+     */
     public static void main(String[] args) throws Exception {
-        byte[] data = Files.readAllBytes(Paths
-                .get("./THIRDPARTYLICENSEREADME.txt"));
-        for (int level = 1; level < 10; level++) {
-            System.out.println("JDK Gzip\t" + level + " "
-                    + compress(new JdkGzipCompress(level), data));
-            System.out.println("COMMONS Gzip\t" + level + " "
-                    + compress(new CommonsGzipCompress(level), data));
-            System.out.println("COMMONS BZip2\t" + level + " "
-                    + compress(new CommonsBZip2Compress(level), data));
-            System.out.println("COMMONS Deflate\t" + level + " "
-                    + compress(new CommonsDeflateCompress(level), data));
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1048576;
+        for (Corpus.Kind kind : Corpus.Kind.values()) {
+            byte[] data = Corpus.load(kind.name(), size);
+            for (int level = 1; level < 10; level++) {
+                System.out.println(kind + "\tJDK Gzip\t" + level + " "
+                        + compress(new JdkGzipCompress(level), data));
+                System.out.println(kind + "\tCOMMONS Gzip\t" + level + " "
+                        + compress(new CommonsGzipCompress(level), data));
+                System.out.println(kind + "\tCOMMONS Deflate\t" + level + " "
+                        + compress(new CommonsDeflateCompress(level), data));
+            }
+            for (int blockSize = 1; blockSize < 10; blockSize++) {
+                System.out.println(kind + "\tCOMMONS BZip2\tblock size "
+                        + blockSize + " "
+                        + compress(new CommonsBZip2Compress(blockSize), data));
+            }
+            System.out.println(kind + "\tLZ4\t" + " "
+                    + compress(new Lz4FrameCompress(false), data));
+            System.out.println(kind + "\tSnappy\t" + " "
+                    + compress(new SnappyFramedCompress(), data));
+            System.out.println(kind + "\tZ\t" + " "
+                    + compress(new ZCompress(), data));
         }
     }
 
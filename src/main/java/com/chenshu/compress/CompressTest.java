@@ -1,20 +1,12 @@
 package com.chenshu.compress;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
-import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
-import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 import org.apache.commons.compress.compressors.deflate.DeflateCompressorInputStream;
 import org.apache.commons.compress.compressors.deflate.DeflateCompressorOutputStream;
 import org.apache.commons.compress.compressors.deflate.DeflateParameters;
@@ -37,12 +29,10 @@ import org.openjdk.jmh.runner.options.OptionsBuilder;
 @State(Scope.Thread)
 @BenchmarkMode({ Mode.Throughput })
 @OutputTimeUnit(TimeUnit.SECONDS)
-public class CompressTest {
+public class CompressTest extends CompressHarness {
 
-    private byte[] src;
     private byte[] data_jdk_gz;
     private byte[] data_commons_gz;
-    private byte[] data_commons_bz2;
     private byte[] data_commons_deflate;
 
     // public static final int BEST_COMPRESSION 9
@@ -54,127 +44,36 @@ public class CompressTest {
     // public static final int HUFFMAN_ONLY 2
     // public static final int NO_COMPRESSION 0
 
-    @Param({ "1", "2", "3", "4", "5", "6", "7", "8", "9" })
+    @Param({ "1", "6", "9" })
     protected int level;
 
+    // GZIPInputStream/GZIPOutputStream buffer for the jdkGzip benchmarks;
+    // GzipBufferTest shows what larger ones save
+    @Param({ "512" })
+    protected int gzipBufferSize;
+
     @Setup
     public void prepare() {
         try {
-            src = Files
-                    .readAllBytes(Paths.get("./THIRDPARTYLICENSEREADME.txt"));
-            data_jdk_gz = getJdkGzipCompressContent();
-            data_commons_gz = getCommonsGzipCompressContent();
-            data_commons_bz2 = getCommonsBZip2CompressContent();
-            data_commons_deflate = getCommonsDeflateCompressContent();
+            src = Corpus.load(corpus, size);
+            data_jdk_gz = prepareData(new JdkGzipCompress());
+            data_commons_gz = prepareData(new CommonsGzipCompress());
+            data_commons_deflate = prepareData(new CommonsDeflateCompress());
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    interface StreamFactory {
-
-        public InputStream getInputStream(final InputStream in)
-                throws IOException;
-
-        public OutputStream getOutputStream(final OutputStream out)
-                throws IOException;
-    }
-
-    private byte[] getCompressContent(StreamFactory factory) {
-        ByteArrayOutputStream bout = null;
-        OutputStream out = null;
-        try {
-            bout = new ByteArrayOutputStream(src.length);
-            out = factory.getOutputStream(bout);
-            out.write(src);
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            if (out != null) {
-                try {
-                    out.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-            if (bout != null) {
-                try {
-                    bout.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-        return bout.toByteArray();
-    }
-
-    private byte[] getDecompressContent(StreamFactory factory, byte[] data) {
-        byte[] dest = null;
-        ByteArrayInputStream bin = null;
-        InputStream in = null;
-        ByteArrayOutputStream os = null;
-        try {
-            bin = new ByteArrayInputStream(data);
-            in = factory.getInputStream(bin);
-            dest = new byte[src.length];
-            // in.read(dest);
-            os = new ByteArrayOutputStream(src.length);
-            int count = 0;
-            while ((count = in.read(dest)) != -1) {
-                os.write(dest, 0, count);
-            }
-            dest = os.toByteArray();
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            if (in != null) {
-                try {
-                    in.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-            if (bin != null) {
-                try {
-                    bin.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-            if (os != null) {
-                try {
-                    os.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-
-        assert src.length == dest.length;
-        assert Arrays.equals(src, dest);
-        assert new String(src, Charset.forName("UTF-8")).equals(new String(
-                dest, Charset.forName("UTF-8")));
-        return dest;
-    }
-
-    private int compress(StreamFactory factory) {
-        return getCompressContent(factory).length;
-    }
-
-    private int decompress(StreamFactory factory, byte[] data) {
-        return getDecompressContent(factory, data).length;
-    }
-
     class JdkGzipCompress implements StreamFactory {
         @Override
         public InputStream getInputStream(InputStream in) throws IOException {
-            return new GZIPInputStream(in);
+            return new GZIPInputStream(in, gzipBufferSize);
         }
 
         @Override
         public OutputStream getOutputStream(OutputStream out)
                 throws IOException {
-            return new GZIPOutputStream(out) {
+            return new GZIPOutputStream(out, gzipBufferSize) {
                 {
                     def.setLevel(level);
                 }
@@ -182,18 +81,16 @@ public class CompressTest {
         }
     }
 
-    private byte[] getJdkGzipCompressContent() {
-        return getCompressContent(new JdkGzipCompress());
-    }
-
     @Benchmark
-    public int jdkGzipCompress() {
-        return compress(new JdkGzipCompress());
+    public int jdkGzipCompress(ThroughputCounters counters)
+            throws IOException {
+        return compress(new JdkGzipCompress(), counters);
     }
 
     @Benchmark
-    public int jdkGzipDecompress() {
-        return decompress(new JdkGzipCompress(), data_jdk_gz);
+    public int jdkGzipDecompress(ThroughputCounters counters)
+            throws IOException {
+        return decompress(new JdkGzipCompress(), data_jdk_gz, counters);
     }
 
     class CommonsGzipCompress implements StreamFactory {
@@ -211,45 +108,17 @@ public class CompressTest {
         }
     }
 
-    private byte[] getCommonsGzipCompressContent() {
-        return getCompressContent(new CommonsGzipCompress());
-    }
-
-    @Benchmark
-    public int commonsGzipCompress() {
-        return compress(new CommonsGzipCompress());
-    }
-
-    @Benchmark
-    public int commonsGzipDecompress() {
-        return decompress(new CommonsGzipCompress(), data_commons_gz);
-    }
-
-    class CommonsBZip2Compress implements StreamFactory {
-        @Override
-        public InputStream getInputStream(InputStream in) throws IOException {
-            return new BZip2CompressorInputStream(in);
-        }
-
-        @Override
-        public OutputStream getOutputStream(OutputStream out)
-                throws IOException {
-            return new BZip2CompressorOutputStream(out, level);
-        }
-    }
-
-    private byte[] getCommonsBZip2CompressContent() {
-        return getCompressContent(new CommonsBZip2Compress());
-    }
-
     @Benchmark
-    public int commonsBZip2Compress() {
-        return compress(new CommonsBZip2Compress());
+    public int commonsGzipCompress(ThroughputCounters counters)
+            throws IOException {
+        return compress(new CommonsGzipCompress(), counters);
     }
 
     @Benchmark
-    public int commonsBZip2Decompress() {
-        return decompress(new CommonsBZip2Compress(), data_commons_bz2);
+    public int commonsGzipDecompress(ThroughputCounters counters)
+            throws IOException {
+        return decompress(new CommonsGzipCompress(), data_commons_gz,
+                counters);
     }
 
     class CommonsDeflateCompress implements StreamFactory {
@@ -267,28 +136,39 @@ public class CompressTest {
         }
     }
 
-    private byte[] getCommonsDeflateCompressContent() {
-        return getCompressContent(new CommonsDeflateCompress());
-    }
-
     @Benchmark
-    public int commonsDeflateCompress() {
-        return compress(new CommonsDeflateCompress());
+    public int commonsDeflateCompress(ThroughputCounters counters)
+            throws IOException {
+        return compress(new CommonsDeflateCompress(), counters);
     }
 
     @Benchmark
-    public int commonsDeflateDecompress() {
-        return decompress(new CommonsDeflateCompress(), data_commons_deflate);
+    public int commonsDeflateDecompress(ThroughputCounters counters)
+            throws IOException {
+        return decompress(new CommonsDeflateCompress(), data_commons_deflate,
+                counters);
     }
 
     /**
      * 
-     * java -jar target/benchmarks.jar CompressTest -wi 5 -i 5 -f 1
+     * java -jar target/benchmarks.jar "\.CompressTest\." -wi 5 -i 5 -f 1
+     * 
+     * java -jar target/benchmarks.jar "\.CompressTest\." -p corpus=JSON \
+     *     -p size=4096
+     * 
+     * The full matrix, 9 levels x 6 corpora x 5 sizes, takes well over 12
+     * hours:
+     * 
+     * java -jar target/benchmarks.jar "\.(NoLevel)?CompressTest\." \
+     *     -p level=1,2,3,4,5,6,7,8,9 \
+     *     -p corpus=LICENSE,JSON,CSV,RANDOM,RECORDS,GZIPPED \
+     *     -p size=64,4096,262144,4194304,67108864
      * 
      */
     public static void main(String[] args) throws RunnerException {
         Options opt = new OptionsBuilder()
-                .include(CompressTest.class.getSimpleName())
+                // anchored: the bare name also matches BlockCompressTest etc.
+                .include("\\." + CompressTest.class.getSimpleName() + "\\.")
                 .warmupIterations(5).measurementIterations(5).forks(1).build();
 
         new Runner(opt).run();
@@ -0,0 +1,198 @@
+package com.chenshu.compress;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+
+/**
+ * Whole-buffer round trips through a {@link StreamFactory}, shared by the
+ * benchmarks that are not about the stream plumbing itself.
+ */
+final class CompressUtils {
+
+    // reads of 0 bytes in a row before readByte gives up on a stream
+    private static final int MAX_EMPTY_READS = 16;
+
+    private CompressUtils() {
+    }
+
+    static byte[] compress(StreamFactory factory, byte[] src)
+            throws IOException {
+        return compress(factory, src, 0, src.length);
+    }
+
+    static byte[] compress(StreamFactory factory, byte[] src, int off,
+            int len) throws IOException {
+        SegmentedByteSink sink = new SegmentedByteSink();
+        try {
+            write(factory.getOutputStream(sink), src, off, len);
+            return sink.toByteArray();
+        } finally {
+            sink.release();
+        }
+    }
+
+    /**
+     * Compresses into {@code ch} with one gathering write of the pooled
+     * chunks, without assembling the output in an array.
+     *
+     * @return number of compressed bytes written
+     */
+    static long compress(StreamFactory factory, byte[] src,
+            GatheringByteChannel ch) throws IOException {
+        SegmentedByteSink sink = new SegmentedByteSink();
+        try {
+            write(factory.getOutputStream(sink), src, 0, src.length);
+            return sink.writeTo(ch);
+        } finally {
+            sink.release();
+        }
+    }
+
+    private static void write(OutputStream out, byte[] src, int off, int len)
+            throws IOException {
+        try {
+            out.write(src, off, len);
+        } finally {
+            out.close();
+        }
+    }
+
+    static byte[] decompress(StreamFactory factory, byte[] data, int sizeHint)
+            throws IOException {
+        InputStream in = factory.getInputStream(new ByteArrayInputStream(data));
+        SegmentedByteSink sink = new SegmentedByteSink();
+        try {
+            byte[] dest = new byte[Math.max(512, Math.min(sizeHint, 65536))];
+            int count;
+            while ((count = in.read(dest)) != -1) {
+                sink.write(dest, 0, count);
+            }
+            return sink.toByteArray();
+        } finally {
+            sink.release();
+            in.close();
+        }
+    }
+
+    /**
+     * Compresses {@code src} and checks that it decompresses back to the same
+     * bytes; benchmark setups use this rather than {@code assert}, which JMH
+     * forks run without.
+     *
+     * @return the compressed data
+     * @throws IllegalStateException if the round trip does not match
+     */
+    static byte[] roundTrip(StreamFactory factory, byte[] src)
+            throws IOException {
+        byte[] data = compress(factory, src);
+        byte[] dest = new byte[src.length];
+        if (decompress(factory, data, dest, 0) != src.length
+                || !Arrays.equals(src, dest)) {
+            throw new IllegalStateException(factory.getClass().getName()
+                    + " does not round-trip");
+        }
+        return data;
+    }
+
+    /**
+     * Decompresses into {@code dst} from {@code off} on without any
+     * intermediate buffer.
+     *
+     * @return number of bytes written
+     * @throws IOException also when the data does not fit
+     */
+    static int decompress(StreamFactory factory, byte[] data, byte[] dst,
+            int off) throws IOException {
+        InputStream in = factory.getInputStream(new ByteArrayInputStream(data));
+        try {
+            int p = readFully(in, dst, off);
+            if (p == dst.length && readByte(in) != -1) {
+                throw new IOException("Decompressed data exceeds "
+                        + (dst.length - off) + " bytes");
+            }
+            return p - off;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Decompresses into a single array of {@code size} bytes, which is the
+     * result when the guess is right. A short result costs one copy, a long
+     * one falls back to a {@link SegmentedByteSink}.
+     */
+    static byte[] decompressExact(StreamFactory factory, byte[] data,
+            int size) throws IOException {
+        InputStream in = factory.getInputStream(new ByteArrayInputStream(data));
+        try {
+            byte[] dst = new byte[size];
+            int p = readFully(in, dst, 0);
+            if (p < size) {
+                return Arrays.copyOf(dst, p);
+            }
+            int b = readByte(in);
+            if (b == -1) {
+                return dst;
+            }
+            SegmentedByteSink sink = new SegmentedByteSink();
+            try {
+                sink.write(dst);
+                sink.write(b);
+                byte[] buf = new byte[Math.max(512, Math.min(size, 65536))];
+                int count;
+                while ((count = in.read(buf)) != -1) {
+                    sink.write(buf, 0, count);
+                }
+                return sink.toByteArray();
+            } finally {
+                sink.release();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Gzip decompression sized by the ISIZE trailer field, so the output is
+     * allocated once and never copied for single-member input.
+     */
+    static byte[] decompressGzip(StreamFactory factory, byte[] data)
+            throws IOException {
+        long size = GzipFormat.trailerSize(data, 0, data.length);
+        if (size < 0 || size > Integer.MAX_VALUE - 8) {
+            return decompress(factory, data, data.length);
+        }
+        return decompressExact(factory, data, (int) size);
+    }
+
+    /**
+     * {@link InputStream#read()} without trusting it: commons-compress 1.9's
+     * framed Snappy stream returns a phantom 0 from it at the end of the
+     * data, where the array read correctly reports nothing.
+     */
+    private static int readByte(InputStream in) throws IOException {
+        byte[] one = new byte[1];
+        for (int i = 0; i < MAX_EMPTY_READS; i++) {
+            // a stream may report 0 once before -1
+            int n = in.read(one, 0, 1);
+            if (n != 0) {
+                return n == -1 ? -1 : one[0] & 0xff;
+            }
+        }
+        throw new IOException("No progress after " + MAX_EMPTY_READS
+                + " reads of 0 bytes");
+    }
+
+    private static int readFully(InputStream in, byte[] b, int off)
+            throws IOException {
+        int n;
+        while (off < b.length && (n = in.read(b, off, b.length - off)) != -1) {
+            off += n;
+        }
+        return off;
+    }
+}
@@ -0,0 +1,199 @@
+package com.chenshu.compress;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Deterministic benchmark inputs. Each kind is generated from a fixed seed to
+ * exactly the requested size and cached under {@code target/corpus} (or the
+ * {@code corpus.dir} system property), so forks after the first one only pay
+ * for reading the file.
+ */
+final class Corpus {
+
+    enum Kind {
+        /** THIRDPARTYLICENSEREADME.txt repeated: English text */
+        LICENSE,
+        /** structured JSON log lines */
+        JSON,
+        /** numeric CSV telemetry */
+        CSV,
+        /** uniformly random bytes, incompressible */
+        RANDOM,
+        /** fixed-size binary records with slowly changing fields */
+        RECORDS,
+        /** gzip output, i.e. already compressed data */
+        GZIPPED
+    }
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String LICENSE_FILE = "./THIRDPARTYLICENSEREADME.txt";
+
+    private Corpus() {
+    }
+
+    static byte[] load(String kind, int size) throws IOException {
+        Kind k = Kind.valueOf(kind);
+        Path dir = Paths.get(System.getProperty("corpus.dir", "target/corpus"));
+        Path file = dir.resolve(k.name().toLowerCase(Locale.ROOT) + "-" + size
+                + ".bin");
+        if (Files.isRegularFile(file) && Files.size(file) == size) {
+            return Files.readAllBytes(file);
+        }
+        byte[] data = generate(k, size);
+        Files.createDirectories(dir);
+        // concurrent forks may race here; the rename keeps readers safe
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(),
+                ".tmp");
+        Files.write(tmp, data);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return data;
+    }
+
+    static byte[] generate(Kind kind, int size) throws IOException {
+        Random random = new Random(kind.ordinal() * 31L + 17);
+        Filler out = new Filler(size);
+        switch (kind) {
+        case LICENSE:
+            byte[] text = Files.readAllBytes(Paths.get(LICENSE_FILE));
+            while (!out.full()) {
+                out.put(text);
+            }
+            break;
+        case JSON:
+            json(out, random);
+            break;
+        case CSV:
+            csv(out, random);
+            break;
+        case RANDOM:
+            random.nextBytes(out.buf);
+            break;
+        case RECORDS:
+            records(out, random);
+            break;
+        case GZIPPED:
+            while (!out.full()) {
+                Filler chunk = new Filler(1 << 20);
+                json(chunk, random);
+                ByteArrayOutputStream bout = new ByteArrayOutputStream(
+                        chunk.buf.length / 4);
+                OutputStream gz = new GZIPOutputStream(bout);
+                gz.write(chunk.buf);
+                gz.close();
+                out.put(bout.toByteArray());
+            }
+            break;
+        }
+        return out.buf;
+    }
+
+    private static final String[] LEVELS = { "DEBUG", "INFO", "INFO", "INFO",
+            "WARN", "ERROR" };
+    private static final String[] SERVICES = { "gateway", "auth", "orders",
+            "billing", "search", "inventory", "notification" };
+    private static final String[] MESSAGES = { "request completed",
+            "cache miss, loading from store", "retrying upstream call",
+            "user session refreshed", "slow query detected",
+            "connection reset by peer", "payload validation failed" };
+
+    private static void json(Filler out, Random random) {
+        long ts = 1700000000000L;
+        StringBuilder sb = new StringBuilder(256);
+        while (!out.full()) {
+            ts += random.nextInt(50);
+            sb.setLength(0);
+            sb.append("{\"ts\":").append(ts).append(",\"level\":\"")
+                    .append(LEVELS[random.nextInt(LEVELS.length)])
+                    .append("\",\"service\":\"")
+                    .append(SERVICES[random.nextInt(SERVICES.length)])
+                    .append("\",\"traceId\":\"")
+                    .append(Long.toHexString(random.nextLong()))
+                    .append("\",\"status\":")
+                    .append(random.nextInt(10) == 0 ? 500 : 200)
+                    .append(",\"latencyMs\":").append(random.nextInt(2000))
+                    .append(",\"msg\":\"")
+                    .append(MESSAGES[random.nextInt(MESSAGES.length)])
+                    .append("\"}\n");
+            out.put(sb.toString().getBytes(UTF_8));
+        }
+    }
+
+    private static void csv(Filler out, Random random) {
+        long ts = 1700000000L;
+        double temperature = 20.0;
+        double pressure = 1013.25;
+        StringBuilder sb = new StringBuilder(128);
+        for (int id = 0; !out.full(); id++) {
+            ts += 1 + random.nextInt(3);
+            temperature += random.nextGaussian() * 0.1;
+            pressure += random.nextGaussian() * 0.05;
+            sb.setLength(0);
+            sb.append(id).append(',').append(ts).append(',')
+                    .append(random.nextInt(64)).append(',')
+                    .append(String.format(Locale.ROOT, "%.3f", temperature))
+                    .append(',')
+                    .append(String.format(Locale.ROOT, "%.2f", pressure))
+                    .append(',').append(random.nextInt(100) < 3 ? 1 : 0)
+                    .append('\n');
+            out.put(sb.toString().getBytes(UTF_8));
+        }
+    }
+
+    private static void records(Filler out, Random random) {
+        // 32-byte little-endian records of four 8-byte fields: time, sensor,
+        // counter, value
+        byte[] rec = new byte[32];
+        long time = 1700000000000000L;
+        long counter = 0;
+        double value = 0;
+        while (!out.full()) {
+            time += 1000 + random.nextInt(16);
+            counter += random.nextInt(4);
+            value += random.nextGaussian();
+            putLong(rec, 0, time);
+            putLong(rec, 8, random.nextInt(16));
+            putLong(rec, 16, counter);
+            putLong(rec, 24, Double.doubleToLongBits(Math.rint(value * 16) / 16));
+            out.put(rec);
+        }
+    }
+
+    private static void putLong(byte[] b, int off, long v) {
+        for (int i = 0; i < 8; i++) {
+            b[off + i] = (byte) (v >>> (8 * i));
+        }
+    }
+
+    /**
+     * Fixed-size sink that silently drops whatever does not fit.
+     */
+    private static final class Filler {
+        final byte[] buf;
+        int pos;
+
+        Filler(int size) {
+            buf = new byte[size];
+        }
+
+        boolean full() {
+            return pos == buf.length;
+        }
+
+        void put(byte[] b) {
+            int n = Math.min(b.length, buf.length - pos);
+            System.arraycopy(b, 0, buf, pos, n);
+            pos += n;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.chenshu.compress;
+
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli), slicing-by-8. commons-compress has one, but it is
+ * package-private, and {@code java.util.zip.CRC32C} needs Java 9.
+ */
+class Crc32C implements Checksum {
+
+    private static final int POLY = 0x82F63B78;
+    private static final int[][] T = new int[8][256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int c = i;
+            for (int k = 0; k < 8; k++) {
+                c = (c & 1) != 0 ? (c >>> 1) ^ POLY : c >>> 1;
+            }
+            T[0][i] = c;
+        }
+        for (int i = 0; i < 256; i++) {
+            for (int t = 1; t < 8; t++) {
+                T[t][i] = (T[t - 1][i] >>> 8) ^ T[0][T[t - 1][i] & 0xff];
+            }
+        }
+    }
+
+    private int crc = 0xffffffff;
+
+    @Override
+    public void update(int b) {
+        crc = (crc >>> 8) ^ T[0][(crc ^ b) & 0xff];
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        int c = crc;
+        int[] t0 = T[0], t1 = T[1], t2 = T[2], t3 = T[3];
+        int[] t4 = T[4], t5 = T[5], t6 = T[6], t7 = T[7];
+        for (; len >= 8; off += 8, len -= 8) {
+            int lo = c ^ ((b[off] & 0xff) | (b[off + 1] & 0xff) << 8
+                    | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24);
+            c = t7[lo & 0xff] ^ t6[(lo >>> 8) & 0xff]
+                    ^ t5[(lo >>> 16) & 0xff] ^ t4[lo >>> 24]
+                    ^ t3[b[off + 4] & 0xff] ^ t2[b[off + 5] & 0xff]
+                    ^ t1[b[off + 6] & 0xff] ^ t0[b[off + 7] & 0xff];
+        }
+        for (; len > 0; off++, len--) {
+            c = (c >>> 8) ^ t0[(c ^ b[off]) & 0xff];
+        }
+        crc = c;
+    }
+
+    @Override
+    public long getValue() {
+        return ~crc & 0xffffffffL;
+    }
+
+    @Override
+    public void reset() {
+        crc = 0xffffffff;
+    }
+}
@@ -0,0 +1,108 @@
+package com.chenshu.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * zlib (or raw deflate, with {@code nowrap}) block codec reusing a single
+ * {@link Deflater}/{@link Inflater} pair. Call {@link #end()} to release the
+ * native memory eagerly.
+ */
+class DeflateBlockCodec implements BlockCodec {
+
+    private static final int ZLIB_OVERHEAD = 6;
+
+    protected final Deflater def;
+    protected final Inflater inf;
+    private final boolean nowrap;
+
+    public DeflateBlockCodec(int level, boolean nowrap) {
+        this.def = new Deflater(level, nowrap);
+        this.inf = new Inflater(nowrap);
+        this.nowrap = nowrap;
+    }
+
+    /**
+     * zlib's deflateBound() for the default window and memLevel, which is what
+     * {@link Deflater} always uses.
+     */
+    static int deflateBound(int len) {
+        return len + (len >>> 12) + (len >>> 14) + (len >>> 25) + 13;
+    }
+
+    @Override
+    public int maxCompressedLength(int len) {
+        return deflateBound(len) + (nowrap ? 0 : ZLIB_OVERHEAD);
+    }
+
+    @Override
+    public int compress(byte[] src, int off, int len, byte[] dst, int dstOff)
+            throws IOException {
+        def.reset();
+        def.setInput(src, off, len);
+        def.finish();
+        int n = def.deflate(dst, dstOff, dst.length - dstOff);
+        if (!def.finished()) {
+            throw new IOException("Destination buffer too small");
+        }
+        return n;
+    }
+
+    @Override
+    public int decompress(byte[] src, int off, int len, byte[] dst,
+            int dstOff) throws IOException {
+        inf.reset();
+        inf.setInput(src, off, len);
+        return inflate(dst, dstOff);
+    }
+
+    /**
+     * Inflates the pending input to its end; the input must already be set.
+     */
+    protected int inflate(byte[] dst, int dstOff) throws IOException {
+        int p = dstOff;
+        try {
+            while (!inf.finished()) {
+                int n = inf.inflate(dst, p, dst.length - p);
+                p += n;
+                if (n == 0) {
+                    if (inf.needsInput()) {
+                        throw new EOFException("Unexpected end of input");
+                    }
+                    if (inf.needsDictionary()) {
+                        byte[] dictionary = dictionary();
+                        if (dictionary == null) {
+                            throw new ZipException(
+                                    "Preset dictionary required");
+                        }
+                        inf.setDictionary(dictionary);
+                        continue;
+                    }
+                    if (p == dst.length) {
+                        throw new IOException("Destination buffer too small");
+                    }
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+        return p - dstOff;
+    }
+
+    /**
+     * Preset dictionary handed to the inflater when a zlib stream asks for
+     * one; none by default.
+     */
+    protected byte[] dictionary() {
+        return null;
+    }
+
+    public void end() {
+        def.end();
+        inf.end();
+    }
+}
@@ -0,0 +1,35 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Format, buffer size and inputs shared by {@link DeflateMatrixTest} and
+ * {@link HuffmanOnlyDeflateTest}, which leaves out the level that
+ * {@code HUFFMAN_ONLY} ignores.
+ */
+@State(Scope.Thread)
+public abstract class DeflateMatrixHarness extends StreamFactoryHarness {
+
+    @Param({ "ZLIB", "GZIP", "RAW" })
+    protected String format;
+
+    @Param({ "512", "65536" })
+    protected int bufferSize;
+
+    @Param({ "LICENSE", "JSON", "CSV", "RANDOM", "RECORDS", "GZIPPED" })
+    protected String corpus;
+
+    @Param({ "262144" })
+    protected int size;
+
+    protected void prepare(int level, String strategy) throws IOException {
+        prepare(new DeflateStrategyCompress(
+                DeflateStrategyCompress.Format.valueOf(format), level,
+                DeflateStrategyCompress.strategy(strategy), bufferSize),
+                Corpus.load(corpus, size));
+    }
+}
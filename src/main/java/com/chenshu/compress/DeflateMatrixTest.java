@@ -0,0 +1,81 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JDK deflate over format, strategy, level and stream buffer size, which
+ * {@link CompressTest} leaves at zlib's defaults apart from the level.
+ * {@code FILTERED} favours Huffman coding over short matches, as suits
+ * numeric data like {@code RECORDS}. {@code HUFFMAN_ONLY} skips match
+ * finding altogether, so its level makes no difference; it runs once per
+ * format in {@link HuffmanOnlyDeflateTest}.
+ * <p>
+ * The counters have the same shape as CompressTest's, so
+ * {@link ParetoReport} {@code -i} on the JSON that {@link #main} writes, which
+ * covers both classes, lists the Pareto-optimal combinations per corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DeflateMatrixTest extends DeflateMatrixHarness {
+
+    @Param({ "DEFAULT", "FILTERED" })
+    protected String strategy;
+
+    @Param({ "1", "6", "9" })
+    protected int level;
+
+    @Setup
+    public void prepare() throws IOException {
+        prepare(level, strategy);
+    }
+
+    @Benchmark
+    public int deflateCompress(ThroughputCounters counters)
+            throws IOException {
+        return compress(counters);
+    }
+
+    @Benchmark
+    public int deflateDecompress(ThroughputCounters counters)
+            throws IOException {
+        return decompress(counters);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar DeflateMatrixTest -wi 5 -i 5 -f 1
+     * 
+     * java -cp target/benchmarks.jar com.chenshu.compress.DeflateMatrixTest
+     * java -cp target/benchmarks.jar com.chenshu.compress.ParetoReport \
+     *     -i target/deflate-results.json -o target/deflate-pareto.csv
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include("\\.(" + DeflateMatrixTest.class.getSimpleName() + "|"
+                        + HuffmanOnlyDeflateTest.class.getSimpleName()
+                        + ")\\.")
+                .warmupIterations(5).measurementIterations(5).forks(1)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/deflate-results.json").build();
+
+        new Runner(opt).run();
+    }
+
+}
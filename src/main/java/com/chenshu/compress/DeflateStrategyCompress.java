@@ -0,0 +1,99 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * JDK deflate with every knob the streams expose: container format, level,
+ * strategy and the size of the stream's buffer, which is also the most zlib
+ * gets to work on per JNI call.
+ */
+class DeflateStrategyCompress implements StreamFactory {
+
+    enum Format {
+        /** RFC 1950, what DeflaterOutputStream writes by default */
+        ZLIB,
+        /** RFC 1952 via GZIPOutputStream */
+        GZIP,
+        /** bare RFC 1951 blocks, no header or checksum */
+        RAW
+    }
+
+    private final Format format;
+    private final int level;
+    private final int strategy;
+    private final int bufferSize;
+
+    public DeflateStrategyCompress(Format format, int level, int strategy,
+            int bufferSize) {
+        this.format = format;
+        this.level = level;
+        this.strategy = strategy;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * {@code DEFAULT}, {@code FILTERED} or {@code HUFFMAN_ONLY}, as named in
+     * {@link Deflater}.
+     */
+    static int strategy(String name) {
+        if ("DEFAULT".equals(name) || "DEFAULT_STRATEGY".equals(name)) {
+            return Deflater.DEFAULT_STRATEGY;
+        } else if ("FILTERED".equals(name)) {
+            return Deflater.FILTERED;
+        } else if ("HUFFMAN_ONLY".equals(name)) {
+            return Deflater.HUFFMAN_ONLY;
+        }
+        throw new IllegalArgumentException("Unknown strategy: " + name);
+    }
+
+    @Override
+    public InputStream getInputStream(InputStream in) throws IOException {
+        if (format == Format.GZIP) {
+            return new GZIPInputStream(in, bufferSize);
+        }
+        return new InflaterInputStream(in, new Inflater(format == Format.RAW),
+                bufferSize) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // not ended by the stream since it did not create it
+                    inf.end();
+                }
+            }
+        };
+    }
+
+    @Override
+    public OutputStream getOutputStream(OutputStream out) throws IOException {
+        if (format == Format.GZIP) {
+            return new GZIPOutputStream(out, bufferSize) {
+                {
+                    def.setLevel(level);
+                    def.setStrategy(strategy);
+                }
+            };
+        }
+        Deflater deflater = new Deflater(level, format == Format.RAW);
+        deflater.setStrategy(strategy);
+        return new DeflaterOutputStream(out, deflater, bufferSize) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    def.end();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package com.chenshu.compress;
+
+import java.util.zip.Deflater;
+
+class DeflaterPool extends ZlibPool<Deflater> {
+
+    private final int level;
+    private final boolean nowrap;
+
+    DeflaterPool(Mode mode, int capacity, int level, boolean nowrap) {
+        super(mode, capacity);
+        this.level = level;
+        this.nowrap = nowrap;
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    @Override
+    protected Deflater create() {
+        return new Deflater(level, nowrap);
+    }
+
+    @Override
+    protected void reset(Deflater def) {
+        def.reset();
+    }
+
+    @Override
+    protected void end(Deflater def) {
+        def.end();
+    }
+}
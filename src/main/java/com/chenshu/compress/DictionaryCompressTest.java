@@ -0,0 +1,191 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Small messages with a trained preset dictionary against plain
+ * {@code CommonsDeflateCompress}. The dictionary is trained on the first
+ * 4 MB of the corpus and the messages are cut from what follows, so it never
+ * contains the exact bytes it is measured on. Ratios are printed in setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DictionaryCompressTest {
+
+    private static final int MESSAGES = 1024;
+    private static final int TRAINING = 4 * 1024 * 1024;
+
+    private byte[][] messages;
+    private int next;
+
+    private StreamFactory plain;
+    private StreamFactory dictionaryStream;
+    private DictionaryDeflateBlockCodec dictionaryBlock;
+    private byte[][] plainData;
+    private byte[][] dictionaryData;
+    private byte[][] blockData;
+    private int[] blockLengths;
+    private byte[] frame;
+    private byte[] dest;
+
+    @Param({ "1", "6" })
+    protected int level;
+
+    @Param({ "JSON", "CSV" })
+    protected String corpus;
+
+    @Param({ "100", "500", "1000", "2000" })
+    protected int messageSize;
+
+    @Param({ "4096", "32768" })
+    protected int dictionarySize;
+
+    @Setup
+    public void prepare() throws IOException {
+        byte[] src = Corpus.load(corpus, TRAINING + MESSAGES * messageSize);
+        byte[][] samples = new byte[TRAINING / messageSize][];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = Arrays.copyOfRange(src, i * messageSize, (i + 1)
+                    * messageSize);
+        }
+        byte[] dictionary = DictionaryTrainer.train(samples, dictionarySize);
+
+        plain = new CompressSizeTest.CommonsDeflateCompress(level);
+        dictionaryStream = new DictionaryDeflateCompress(level, dictionary);
+        dictionaryBlock = new DictionaryDeflateBlockCodec(level, true,
+                dictionary);
+        messages = new byte[MESSAGES][];
+        plainData = new byte[MESSAGES][];
+        dictionaryData = new byte[MESSAGES][];
+        blockData = new byte[MESSAGES][];
+        blockLengths = new int[MESSAGES];
+        long plainBytes = 0;
+        long dictionaryBytes = 0;
+        long blockBytes = 0;
+        dest = new byte[messageSize];
+        for (int i = 0; i < MESSAGES; i++) {
+            int off = TRAINING + i * messageSize;
+            messages[i] = Arrays.copyOfRange(src, off, off + messageSize);
+            plainData[i] = CompressUtils.roundTrip(plain, messages[i]);
+            dictionaryData[i] = CompressUtils.roundTrip(dictionaryStream,
+                    messages[i]);
+            blockData[i] = new byte[dictionaryBlock
+                    .maxCompressedLength(messageSize)];
+            blockLengths[i] = dictionaryBlock.compress(messages[i], 0,
+                    messageSize, blockData[i], 0);
+            if (dictionaryBlock.decompress(blockData[i], 0, blockLengths[i],
+                    dest, 0) != messageSize
+                    || !Arrays.equals(messages[i], dest)) {
+                throw new IllegalStateException("Message " + i
+                        + " does not round-trip through the raw codec");
+            }
+            plainBytes += plainData[i].length;
+            dictionaryBytes += dictionaryData[i].length;
+            blockBytes += blockLengths[i];
+        }
+        frame = new byte[dictionaryBlock.maxCompressedLength(messageSize)];
+        double total = (double) MESSAGES * messageSize;
+        System.out.printf(" [ratio plain %.4f, dictionary %.4f, raw %.4f]",
+                plainBytes / total, dictionaryBytes / total, blockBytes
+                        / total);
+    }
+
+    @TearDown
+    public void shutdown() {
+        dictionaryBlock.end();
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (next + 1) & (MESSAGES - 1);
+        return i;
+    }
+
+    @Benchmark
+    public int plainCompress(ThroughputCounters counters) throws IOException {
+        int i = nextIndex();
+        int n = CompressUtils.compress(plain, messages[i]).length;
+        counters.add(messageSize, n);
+        return n;
+    }
+
+    @Benchmark
+    public int plainDecompress(ThroughputCounters counters)
+            throws IOException {
+        int i = nextIndex();
+        int n = CompressUtils.decompress(plain, plainData[i], messageSize)
+                .length;
+        counters.add(n, plainData[i].length);
+        return n;
+    }
+
+    @Benchmark
+    public int dictionaryCompress(ThroughputCounters counters)
+            throws IOException {
+        int i = nextIndex();
+        int n = CompressUtils.compress(dictionaryStream, messages[i]).length;
+        counters.add(messageSize, n);
+        return n;
+    }
+
+    @Benchmark
+    public int dictionaryDecompress(ThroughputCounters counters)
+            throws IOException {
+        int i = nextIndex();
+        int n = CompressUtils.decompress(dictionaryStream, dictionaryData[i],
+                messageSize).length;
+        counters.add(n, dictionaryData[i].length);
+        return n;
+    }
+
+    @Benchmark
+    public int dictionaryBlockCompress(ThroughputCounters counters)
+            throws IOException {
+        int i = nextIndex();
+        int n = dictionaryBlock.compress(messages[i], 0, messageSize, frame,
+                0);
+        counters.add(messageSize, n);
+        return n;
+    }
+
+    @Benchmark
+    public int dictionaryBlockDecompress(ThroughputCounters counters)
+            throws IOException {
+        int i = nextIndex();
+        int n = dictionaryBlock.decompress(blockData[i], 0, blockLengths[i],
+                dest, 0);
+        counters.add(n, blockLengths[i]);
+        return n;
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar DictionaryCompressTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(DictionaryCompressTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
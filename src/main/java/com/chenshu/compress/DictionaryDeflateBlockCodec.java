@@ -0,0 +1,52 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+
+/**
+ * {@link DeflateBlockCodec} with a preset dictionary, typically from
+ * {@link DictionaryTrainer}, so that even the first bytes of a short message
+ * find matches. zlib streams carry the dictionary's Adler-32 and are checked
+ * against it; raw streams save those six bytes and trust the caller.
+ */
+class DictionaryDeflateBlockCodec extends DeflateBlockCodec {
+
+    private final byte[] dictionary;
+    private final boolean nowrap;
+
+    public DictionaryDeflateBlockCodec(int level, boolean nowrap,
+            byte[] dictionary) {
+        super(level, nowrap);
+        this.dictionary = dictionary.clone();
+        this.nowrap = nowrap;
+    }
+
+    @Override
+    public int compress(byte[] src, int off, int len, byte[] dst, int dstOff)
+            throws IOException {
+        def.reset();
+        def.setDictionary(dictionary);
+        def.setInput(src, off, len);
+        def.finish();
+        int n = def.deflate(dst, dstOff, dst.length - dstOff);
+        if (!def.finished()) {
+            throw new IOException("Destination buffer too small");
+        }
+        return n;
+    }
+
+    @Override
+    public int decompress(byte[] src, int off, int len, byte[] dst,
+            int dstOff) throws IOException {
+        inf.reset();
+        if (nowrap) {
+            inf.setDictionary(dictionary);
+        }
+        inf.setInput(src, off, len);
+        return inflate(dst, dstOff);
+    }
+
+    @Override
+    protected byte[] dictionary() {
+        return dictionary;
+    }
+}
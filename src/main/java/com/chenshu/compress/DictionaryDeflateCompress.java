@@ -0,0 +1,76 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * zlib {@link StreamFactory} with a preset dictionary: the same format
+ * {@code CommonsDeflateCompress} writes, plus the dictionary's Adler-32 in the
+ * header. {@link InflaterInputStream} reports end of stream when the inflater
+ * asks for a dictionary, so the input side supplies it and reads on.
+ */
+class DictionaryDeflateCompress implements StreamFactory {
+
+    private final int level;
+    private final byte[] dictionary;
+
+    public DictionaryDeflateCompress(int level, byte[] dictionary) {
+        this.level = level;
+        this.dictionary = dictionary.clone();
+    }
+
+    @Override
+    public InputStream getInputStream(InputStream in) throws IOException {
+        return new InflaterInputStream(in, new Inflater()) {
+            private boolean closed;
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n == -1 && inf.needsDictionary()) {
+                    inf.setDictionary(dictionary);
+                    n = super.read(b, off, len);
+                }
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    try {
+                        super.close();
+                    } finally {
+                        inf.end();
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public OutputStream getOutputStream(OutputStream out) throws IOException {
+        Deflater def = new Deflater(level);
+        def.setDictionary(dictionary);
+        return new DeflaterOutputStream(out, def) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    try {
+                        super.close();
+                    } finally {
+                        def.end();
+                    }
+                }
+            }
+        };
+    }
+}
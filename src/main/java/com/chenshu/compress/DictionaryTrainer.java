@@ -0,0 +1,117 @@
+package com.chenshu.compress;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Builds a preset dictionary for {@code Deflater.setDictionary} from sample
+ * messages, in the spirit of zstd's COVER trainer: every 8-byte substring is
+ * counted once per sample it occurs in, fixed-size segments of the samples
+ * are scored by the counts of the substrings they contain, and the best
+ * segments are taken greedily, each one zeroing the counts it covers so the
+ * next pick adds something new. Segments are laid out with the best one last,
+ * where deflate reaches it with the shortest distances.
+ */
+final class DictionaryTrainer {
+
+    /** deflate cannot look further back than its 32 KB window */
+    static final int MAX_SIZE = 32 * 1024;
+
+    private static final int GRAM = 8;
+    private static final int SEGMENT = 64;
+    private static final int HASH_LOG = 20;
+
+    private DictionaryTrainer() {
+    }
+
+    /**
+     * @param samples messages representative of what will be compressed
+     * @param size dictionary size, at most {@link #MAX_SIZE}
+     */
+    static byte[] train(byte[][] samples, int size) {
+        if (size <= 0 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Dictionary size must be 1.."
+                    + MAX_SIZE + ": " + size);
+        }
+        int[] freq = new int[1 << HASH_LOG];
+        int[] lastSample = new int[1 << HASH_LOG];
+        Arrays.fill(lastSample, -1);
+        for (int s = 0; s < samples.length; s++) {
+            byte[] b = samples[s];
+            for (int i = 0; i + GRAM <= b.length; i++) {
+                int h = hash(b, i);
+                if (lastSample[h] != s) {
+                    lastSample[h] = s;
+                    freq[h]++;
+                }
+            }
+        }
+
+        // candidates are half-overlapping segments, best score first
+        PriorityQueue<long[]> queue = new PriorityQueue<long[]>(1024,
+                new Comparator<long[]>() {
+                    @Override
+                    public int compare(long[] a, long[] b) {
+                        return a[0] < b[0] ? 1 : a[0] > b[0] ? -1 : 0;
+                    }
+                });
+        for (int s = 0; s < samples.length; s++) {
+            int len = samples[s].length;
+            for (int i = 0; i < len; i += SEGMENT / 2) {
+                int n = Math.min(SEGMENT, len - i);
+                long score = score(freq, samples[s], i, n);
+                if (score > 0) {
+                    queue.add(new long[] { score, s, i, n });
+                }
+            }
+        }
+
+        // lazy greedy: a popped candidate is rescored against the counts
+        // left by earlier picks and only taken if it still beats the rest
+        byte[] dict = new byte[size];
+        int pos = size;
+        while (pos > 0 && !queue.isEmpty()) {
+            long[] c = queue.poll();
+            byte[] b = samples[(int) c[1]];
+            int off = (int) c[2];
+            int n = (int) c[3];
+            long score = score(freq, b, off, n);
+            if (score <= 0) {
+                continue;
+            }
+            if (score < c[0] && !queue.isEmpty() && score < queue.peek()[0]) {
+                c[0] = score;
+                queue.add(c);
+                continue;
+            }
+            for (int i = off; i + GRAM <= off + n; i++) {
+                freq[hash(b, i)] = 0;
+            }
+            n = Math.min(n, pos);
+            pos -= n;
+            System.arraycopy(b, off, dict, pos, n);
+        }
+        return pos == 0 ? dict : Arrays.copyOfRange(dict, pos, size);
+    }
+
+    private static long score(int[] freq, byte[] b, int off, int len) {
+        long score = 0;
+        for (int i = off; i + GRAM <= off + len; i++) {
+            int f = freq[hash(b, i)];
+            // a substring seen in one sample only will not help the others
+            if (f > 1) {
+                score += f;
+            }
+        }
+        return score;
+    }
+
+    private static int hash(byte[] b, int i) {
+        long v = 0;
+        for (int k = 0; k < GRAM; k++) {
+            v = v << 8 | (b[i + k] & 0xff);
+        }
+        return (int) ((v * 0x9E3779B97F4A7C15L) >>> (64 - HASH_LOG));
+    }
+}
@@ -0,0 +1,32 @@
+package com.chenshu.compress;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Direct buffers of one size, pooled like the zlib contexts: allocating and
+ * freeing direct memory costs far more than the native side of a zlib call.
+ */
+class DirectBufferPool extends ZlibPool<ByteBuffer> {
+
+    private final int bufferSize;
+
+    DirectBufferPool(Mode mode, int capacity, int bufferSize) {
+        super(mode, capacity);
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    protected ByteBuffer create() {
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    @Override
+    protected void reset(ByteBuffer b) {
+        b.clear();
+    }
+
+    @Override
+    protected void end(ByteBuffer b) {
+        // left to the collector; there is no supported way to free it
+    }
+}
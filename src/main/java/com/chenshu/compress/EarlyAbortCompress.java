@@ -0,0 +1,187 @@
+package com.chenshu.compress;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.compress.utils.BoundedInputStream;
+
+/**
+ * {@link StreamFactory} wrapper that gives up on compression when it does not
+ * pay. The first block is compressed on its own; if that does not get below
+ * {@code maxRatio} the block and everything after it are stored as they are,
+ * so incompressible input costs one block of compression instead of all of
+ * it. Otherwise the block is kept and the rest goes into a second stream of
+ * the wrapped codec, so compressible input is never compressed twice.
+ * <p>
+ * Format: one mode byte, then
+ * <ul>
+ * <li>{@code STORED}: the raw data;</li>
+ * <li>{@code FIRST_ONLY}: the compressed first (and only) block;</li>
+ * <li>{@code FIRST_AND_REST}: the compressed first block's length as a
+ * big-endian int, the block, then the compressed rest.</li>
+ * </ul>
+ */
+class EarlyAbortCompress implements StreamFactory {
+
+    static final int STORED = 0;
+    static final int FIRST_ONLY = 1;
+    static final int FIRST_AND_REST = 2;
+
+    private final StreamFactory factory;
+    private final int blockSize;
+    private final double maxRatio;
+
+    public EarlyAbortCompress(StreamFactory factory) {
+        this(factory, 64 * 1024, 0.9);
+    }
+
+    public EarlyAbortCompress(StreamFactory factory, int blockSize,
+            double maxRatio) {
+        this.factory = factory;
+        this.blockSize = blockSize;
+        this.maxRatio = maxRatio;
+    }
+
+    @Override
+    public InputStream getInputStream(InputStream in) throws IOException {
+        int mode = in.read();
+        switch (mode) {
+        case STORED:
+            return in;
+        case FIRST_ONLY:
+            return factory.getInputStream(in);
+        case FIRST_AND_REST:
+            return new EarlyAbortInputStream(in);
+        default:
+            throw new IOException("Unknown mode: " + mode);
+        }
+    }
+
+    @Override
+    public OutputStream getOutputStream(OutputStream out) throws IOException {
+        return new EarlyAbortOutputStream(out);
+    }
+
+    class EarlyAbortOutputStream extends OutputStream {
+        private final OutputStream out;
+        private byte[] block = new byte[blockSize];
+        private int count;
+        private byte[] first;
+        // null until the first block is decided, then out or a codec stream
+        private OutputStream rest;
+        private boolean closed;
+
+        EarlyAbortOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            if (block != null) {
+                int n = Math.min(len, block.length - count);
+                System.arraycopy(b, off, block, count, n);
+                count += n;
+                off += n;
+                len -= n;
+                if (count < block.length || len == 0) {
+                    return;
+                }
+                // the block is full and more data follows
+                decide(true);
+            }
+            rest.write(b, off, len);
+        }
+
+        private void decide(boolean more) throws IOException {
+            first = CompressUtils.compress(factory, block, 0, count);
+            if (first.length > count * maxRatio) {
+                out.write(STORED);
+                out.write(block, 0, count);
+                rest = out;
+            } else if (more) {
+                DataOutputStream header = new DataOutputStream(out);
+                header.write(FIRST_AND_REST);
+                header.writeInt(first.length);
+                header.write(first);
+                header.flush();
+                rest = factory.getOutputStream(out);
+            } else {
+                out.write(FIRST_ONLY);
+                out.write(first);
+                rest = out;
+            }
+            block = null;
+            first = null;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (rest != null) {
+                rest.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (block != null) {
+                decide(false);
+            }
+            rest.close();
+        }
+    }
+
+    class EarlyAbortInputStream extends InputStream {
+        private final InputStream in;
+        private InputStream current;
+        private boolean inFirst = true;
+
+        EarlyAbortInputStream(InputStream in) throws IOException {
+            this.in = in;
+            int length = new DataInputStream(in).readInt();
+            this.current = factory.getInputStream(new BoundedInputStream(in,
+                    length));
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = current.read(b, off, len);
+            if (n == -1 && inFirst) {
+                // the rest's codec stream may read its header on creation,
+                // so it is only opened once the first block is drained
+                inFirst = false;
+                current.close();
+                current = factory.getInputStream(in);
+                n = current.read(b, off, len);
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            current.close();
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A codec and its {@link EarlyAbortCompress} wrapper on the inputs shared by
+ * {@link EarlyAbortCompressTest} and {@link NoLevelEarlyAbortCompressTest}.
+ */
+@State(Scope.Thread)
+public abstract class EarlyAbortCompressHarness {
+
+    protected byte[] src;
+    protected byte[] plainData;
+    protected byte[] earlyAbortData;
+
+    protected StreamFactory plain;
+    protected StreamFactory earlyAbort;
+
+    @Param({ "RANDOM", "GZIPPED", "JSON", "LICENSE" })
+    protected String corpus;
+
+    @Param({ "262144", "4194304" })
+    protected int size;
+
+    protected void prepare(StreamFactory plain) throws IOException {
+        this.plain = plain;
+        src = Corpus.load(corpus, size);
+        earlyAbort = new EarlyAbortCompress(plain);
+        plainData = CompressUtils.roundTrip(plain, src);
+        earlyAbortData = CompressUtils.roundTrip(earlyAbort, src);
+        System.out.printf(" [mode %d, ratio plain %.4f, early abort %.4f]",
+                earlyAbortData[0], (double) plainData.length / size,
+                (double) earlyAbortData.length / size);
+    }
+
+    protected int plainCompress(ThroughputCounters counters)
+            throws IOException {
+        int n = CompressUtils.compress(plain, src).length;
+        counters.add(size, n);
+        return n;
+    }
+
+    protected int earlyAbortCompress(ThroughputCounters counters)
+            throws IOException {
+        int n = CompressUtils.compress(earlyAbort, src).length;
+        counters.add(size, n);
+        return n;
+    }
+
+    protected int plainDecompress(ThroughputCounters counters)
+            throws IOException {
+        int n = CompressUtils.decompress(plain, plainData, size).length;
+        counters.add(n, plainData.length);
+        return n;
+    }
+
+    protected int earlyAbortDecompress(ThroughputCounters counters)
+            throws IOException {
+        int n = CompressUtils.decompress(earlyAbort, earlyAbortData, size)
+                .length;
+        counters.add(n, earlyAbortData.length);
+        return n;
+    }
+}
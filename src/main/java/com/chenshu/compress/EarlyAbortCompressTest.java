@@ -0,0 +1,78 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@link EarlyAbortCompress} against the plain codec: the CPU it saves on
+ * incompressible corpora (RANDOM, GZIPPED) and what it costs on compressible
+ * ones, where the only difference is the restart after the first block.
+ * bzip2 has no level and runs in {@link NoLevelEarlyAbortCompressTest}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EarlyAbortCompressTest extends EarlyAbortCompressHarness {
+
+    @Param({ "JDK_GZIP", "COMMONS_DEFLATE" })
+    protected String codecName;
+
+    @Param({ "1", "6" })
+    protected int level;
+
+    @Setup
+    public void prepare() throws IOException {
+        prepare(CompressSizeTest.newFactory(codecName, level));
+    }
+
+    @Benchmark
+    public int plainCompress(ThroughputCounters counters) throws IOException {
+        return super.plainCompress(counters);
+    }
+
+    @Benchmark
+    public int earlyAbortCompress(ThroughputCounters counters)
+            throws IOException {
+        return super.earlyAbortCompress(counters);
+    }
+
+    @Benchmark
+    public int plainDecompress(ThroughputCounters counters)
+            throws IOException {
+        return super.plainDecompress(counters);
+    }
+
+    @Benchmark
+    public int earlyAbortDecompress(ThroughputCounters counters)
+            throws IOException {
+        return super.earlyAbortDecompress(counters);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar '\.EarlyAbortCompressTest\.' -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include("\\." + EarlyAbortCompressTest.class.getSimpleName()
+                        + "\\.")
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
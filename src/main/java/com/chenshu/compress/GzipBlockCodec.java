@@ -0,0 +1,65 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+/**
+ * Single-member gzip on top of a raw {@link DeflateBlockCodec}; the output is
+ * byte-for-byte what {@code GZIPOutputStream} would write at the same level.
+ */
+class GzipBlockCodec extends DeflateBlockCodec {
+
+    private final CRC32 crc = new CRC32();
+
+    public GzipBlockCodec(int level) {
+        super(level, true);
+    }
+
+    @Override
+    public int maxCompressedLength(int len) {
+        return deflateBound(len) + GzipFormat.HEADER_SIZE
+                + GzipFormat.TRAILER_SIZE;
+    }
+
+    @Override
+    public int compress(byte[] src, int off, int len, byte[] dst, int dstOff)
+            throws IOException {
+        if (dst.length - dstOff < GzipFormat.HEADER_SIZE
+                + GzipFormat.TRAILER_SIZE) {
+            throw new IOException("Destination buffer too small");
+        }
+        int p = dstOff + GzipFormat.writeHeader(dst, dstOff);
+        def.reset();
+        def.setInput(src, off, len);
+        def.finish();
+        p += def.deflate(dst, p, dst.length - p - GzipFormat.TRAILER_SIZE);
+        if (!def.finished()) {
+            throw new IOException("Destination buffer too small");
+        }
+        crc.reset();
+        crc.update(src, off, len);
+        p += GzipFormat.writeTrailer(dst, p, (int) crc.getValue(), len);
+        return p - dstOff;
+    }
+
+    @Override
+    public int decompress(byte[] src, int off, int len, byte[] dst,
+            int dstOff) throws IOException {
+        int header = GzipFormat.headerLength(src, off, len);
+        inf.reset();
+        inf.setInput(src, off + header, len - header);
+        int n = inflate(dst, dstOff);
+        int trailer = off + len - inf.getRemaining();
+        if (inf.getRemaining() < GzipFormat.TRAILER_SIZE) {
+            throw new ZipException("Missing GZIP trailer");
+        }
+        crc.reset();
+        crc.update(dst, dstOff, n);
+        if (GzipFormat.readInt(src, trailer) != (int) crc.getValue()
+                || GzipFormat.readInt(src, trailer + 4) != n) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+        return n;
+    }
+}
@@ -0,0 +1,76 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JDK gzip by stream buffer size. GZIPOutputStream deflates into its buffer
+ * and GZIPInputStream feeds zlib from it, so either way there is about one
+ * JNI call per {@code bufferSize} bytes of compressed data: over 8000 per
+ * compressed megabyte at the default 512. The output goes straight to the
+ * caller's array, so the buffer is the only thing that changes. Every
+ * stream allocates its own buffer, a cost the 4 KB inputs make visible. The
+ * best size found here goes into {@link CompressTest} as
+ * {@code -p gzipBufferSize=...}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GzipBufferTest extends StreamFactoryHarness {
+
+    @Param({ "512", "2048", "8192", "32768", "65536", "262144", "1048576" })
+    protected int bufferSize;
+
+    @Param({ "1", "6" })
+    protected int level;
+
+    @Param({ "JSON", "RECORDS" })
+    protected String corpus;
+
+    @Param({ "4096", "4194304" })
+    protected int size;
+
+    @Setup
+    public void prepare() throws IOException {
+        prepare(new CompressSizeTest.JdkGzipCompress(level, bufferSize),
+                Corpus.load(corpus, size));
+    }
+
+    @Benchmark
+    public int gzipCompress(ThroughputCounters counters) throws IOException {
+        return compress(counters);
+    }
+
+    @Benchmark
+    public int gzipDecompress(ThroughputCounters counters)
+            throws IOException {
+        return decompress(counters);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar GzipBufferTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(GzipBufferTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,238 @@
+package com.chenshu.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Minimal RFC 1952 framing helpers, used by the codecs that drive a raw
+ * (nowrap) {@link java.util.zip.Deflater} or {@link java.util.zip.Inflater}
+ * themselves instead of going through {@code GZIPOutputStream}.
+ */
+final class GzipFormat {
+
+    static final int HEADER_SIZE = 10;
+    static final int TRAILER_SIZE = 8;
+
+    private static final int MAGIC = 0x8b1f;
+    private static final int DEFLATED = 8;
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    // same header GZIPOutputStream writes: no flags, no mtime, OS unknown
+    private static final byte[] HEADER = { (byte) MAGIC, (byte) (MAGIC >> 8),
+            DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    private GzipFormat() {
+    }
+
+    static void writeHeader(OutputStream out) throws IOException {
+        out.write(HEADER);
+    }
+
+    static int writeHeader(byte[] b, int off) {
+        System.arraycopy(HEADER, 0, b, off, HEADER_SIZE);
+        return HEADER_SIZE;
+    }
+
+    static void writeTrailer(OutputStream out, int crc, int size)
+            throws IOException {
+        byte[] b = new byte[TRAILER_SIZE];
+        writeTrailer(b, 0, crc, size);
+        out.write(b);
+    }
+
+    static int writeTrailer(byte[] b, int off, int crc, int size) {
+        writeInt(b, off, crc);
+        writeInt(b, off + 4, size);
+        return TRAILER_SIZE;
+    }
+
+    /**
+     * The ISIZE field of the trailer ending at {@code off + len}: the
+     * uncompressed length modulo 2^32 of the last member only, so a hint
+     * rather than a promise for multi-member or very large input.
+     *
+     * @return the size, or -1 if {@code len} is too short for a member
+     */
+    static long trailerSize(byte[] b, int off, int len) {
+        if (len < HEADER_SIZE + 2 + TRAILER_SIZE) {
+            return -1;
+        }
+        return readInt(b, off + len - 4) & 0xffffffffL;
+    }
+
+    /**
+     * Consumes a member header from the stream and returns its length.
+     */
+    static int readHeader(InputStream in) throws IOException {
+        if (readShort(in) != MAGIC) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (readByte(in) != DEFLATED) {
+            throw new ZipException("Unsupported compression method");
+        }
+        int flg = readByte(in);
+        skip(in, 6);
+        int n = HEADER_SIZE;
+        if ((flg & FEXTRA) == FEXTRA) {
+            int xlen = readShort(in);
+            skip(in, xlen);
+            n += xlen + 2;
+        }
+        if ((flg & FNAME) == FNAME) {
+            do {
+                n++;
+            } while (readByte(in) != 0);
+        }
+        if ((flg & FCOMMENT) == FCOMMENT) {
+            do {
+                n++;
+            } while (readByte(in) != 0);
+        }
+        if ((flg & FHCRC) == FHCRC) {
+            skip(in, 2);
+            n += 2;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the length of the member header starting at {@code off}.
+     */
+    static int headerLength(byte[] b, int off, int len) throws IOException {
+        if (len < HEADER_SIZE || readShort(b, off) != MAGIC) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if ((b[off + 2] & 0xff) != DEFLATED) {
+            throw new ZipException("Unsupported compression method");
+        }
+        int flg = b[off + 3] & 0xff;
+        int end = off + len;
+        int p = off + HEADER_SIZE;
+        if ((flg & FEXTRA) == FEXTRA) {
+            checkAvailable(p + 2, end);
+            p += 2 + readShort(b, p);
+        }
+        if ((flg & FNAME) == FNAME) {
+            p = skipZeroTerminated(b, p, end);
+        }
+        if ((flg & FCOMMENT) == FCOMMENT) {
+            p = skipZeroTerminated(b, p, end);
+        }
+        if ((flg & FHCRC) == FHCRC) {
+            p += 2;
+        }
+        checkAvailable(p, end);
+        return p - off;
+    }
+
+    /**
+     * CRC-32 of two concatenated pieces given the CRC of each and the length
+     * of the second, as zlib's crc32_combine().
+     */
+    static int crc32Combine(int crc1, int crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+        int[] even = new int[32];
+        int[] odd = new int[32];
+        // operator for one zero bit in odd
+        odd[0] = 0xedb88320;
+        int row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        // two zero bits in even, then four zero bits in odd
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+        // apply len2 zeros to crc1, one squaring per bit of len2
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            len2 >>= 1;
+            if (len2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            len2 >>= 1;
+        } while (len2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static int gf2MatrixTimes(int[] mat, int vec) {
+        int sum = 0;
+        for (int i = 0; vec != 0; i++, vec >>>= 1) {
+            if ((vec & 1) != 0) {
+                sum ^= mat[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(int[] square, int[] mat) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(mat, mat[n]);
+        }
+    }
+
+    static int readInt(byte[] b, int off) {
+        return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8
+                | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+    }
+
+    static void writeInt(byte[] b, int off, int v) {
+        b[off] = (byte) v;
+        b[off + 1] = (byte) (v >> 8);
+        b[off + 2] = (byte) (v >> 16);
+        b[off + 3] = (byte) (v >> 24);
+    }
+
+    private static int readShort(byte[] b, int off) {
+        return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8;
+    }
+
+    private static int skipZeroTerminated(byte[] b, int p, int end)
+            throws IOException {
+        while (p < end && b[p] != 0) {
+            p++;
+        }
+        checkAvailable(p + 1, end);
+        return p + 1;
+    }
+
+    private static void checkAvailable(int p, int end) throws EOFException {
+        if (p > end) {
+            throw new EOFException("Unexpected end of GZIP header");
+        }
+    }
+
+    private static int readShort(InputStream in) throws IOException {
+        return readByte(in) | readByte(in) << 8;
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException("Unexpected end of GZIP header");
+        }
+        return b;
+    }
+
+    private static void skip(InputStream in, int n) throws IOException {
+        while (n-- > 0) {
+            readByte(in);
+        }
+    }
+}
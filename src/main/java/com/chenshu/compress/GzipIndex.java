@@ -0,0 +1,135 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+/**
+ * Random access into a single-member gzip file, after zlib's zran.c. One full
+ * pass records a checkpoint (bit offset plus the preceding 32 KB of output) at
+ * the first deflate block boundary after every {@code span} uncompressed
+ * bytes; a read then resumes from the nearest checkpoint at or before the
+ * requested offset instead of decompressing from the start.
+ */
+final class GzipIndex {
+
+    static final class Point {
+        final long out;
+        final long bit;
+        final byte[] window;
+
+        Point(long out, long bit, byte[] window) {
+            this.out = out;
+            this.bit = bit;
+            this.window = window;
+        }
+    }
+
+    // rough per-point object overhead beyond the window itself
+    private static final int POINT_OVERHEAD = 64;
+
+    private final byte[] data;
+    private final Point[] points;
+    private final long length;
+
+    private GzipIndex(byte[] data, Point[] points, long length) {
+        this.data = data;
+        this.points = points;
+        this.length = length;
+    }
+
+    static GzipIndex build(byte[] gz, long span) throws IOException {
+        int header = GzipFormat.headerLength(gz, 0, gz.length);
+        RawInflater inf = new RawInflater(gz, header * 8L, null);
+        List<Point> points = new ArrayList<Point>();
+        points.add(new Point(0, header * 8L, new byte[0]));
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[65536];
+        long last = 0;
+        int n;
+        while ((n = inf.inflate(buf, 0, buf.length)) != -1) {
+            crc.update(buf, 0, n);
+            if (inf.atBlockBoundary() && inf.totalOut() - last >= span) {
+                last = inf.totalOut();
+                points.add(new Point(last, inf.bitPosition(), inf.window()));
+            }
+        }
+        int trailer = (int) ((inf.bitPosition() + 7) >>> 3);
+        if (gz.length - trailer < GzipFormat.TRAILER_SIZE
+                || GzipFormat.readInt(gz, trailer) != (int) crc.getValue()
+                || GzipFormat.readInt(gz, trailer + 4) != (int) inf.totalOut()) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+        return new GzipIndex(gz, points.toArray(new Point[points.size()]),
+                inf.totalOut());
+    }
+
+    long length() {
+        return length;
+    }
+
+    int pointCount() {
+        return points.length;
+    }
+
+    /**
+     * Approximate heap held by the checkpoints, excluding the compressed data.
+     */
+    long memoryFootprint() {
+        long n = 0;
+        for (Point p : points) {
+            n += p.window.length + POINT_OVERHEAD;
+        }
+        return n;
+    }
+
+    /**
+     * Reads up to {@code len} uncompressed bytes starting at {@code offset}.
+     * 
+     * @return bytes read, fewer than {@code len} only at the end of the data
+     */
+    int read(long offset, byte[] dst, int off, int len) throws IOException {
+        if (offset < 0 || offset > length) {
+            throw new IndexOutOfBoundsException("offset " + offset);
+        }
+        Point point = points[find(offset)];
+        RawInflater inf = new RawInflater(data, point.bit, point.window);
+        long skip = offset - point.out;
+        if (skip > 0) {
+            byte[] scratch = new byte[(int) Math.min(skip, 65536)];
+            while (skip > 0) {
+                int n = inf.inflate(scratch, 0,
+                        (int) Math.min(skip, scratch.length));
+                if (n == -1) {
+                    return 0;
+                }
+                skip -= n;
+            }
+        }
+        int p = off;
+        while (p < off + len) {
+            int n = inf.inflate(dst, p, off + len - p);
+            if (n == -1) {
+                break;
+            }
+            p += n;
+        }
+        return p - off;
+    }
+
+    private int find(long offset) {
+        int lo = 0;
+        int hi = points.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (points[mid].out <= offset) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+}
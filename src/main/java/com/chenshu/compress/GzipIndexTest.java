@@ -0,0 +1,120 @@
+package com.chenshu.compress;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Point-read latency through a {@link GzipIndex} at several checkpoint
+ * densities, against decompressing from the start of the file. The index
+ * footprint for each {@code span} is printed during setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GzipIndexTest {
+
+    private byte[] src;
+    private byte[] data;
+    private GzipIndex index;
+    private long[] offsets;
+    private int next;
+    private byte[] dest;
+
+    @Param({ "65536", "262144", "1048576", "4194304" })
+    protected int span;
+
+    @Param({ "4096" })
+    protected int readSize;
+
+    @Param({ "LICENSE", "JSON" })
+    protected String corpus;
+
+    @Param({ "33554432" })
+    protected int size;
+
+    @Setup
+    public void prepare() throws IOException {
+        src = Corpus.load(corpus, size);
+        data = CompressUtils.compress(new CompressSizeTest.JdkGzipCompress(6),
+                src);
+        index = GzipIndex.build(data, span);
+        System.out.println("index: " + index.pointCount() + " points, "
+                + index.memoryFootprint() + " bytes for " + data.length
+                + " compressed bytes");
+
+        Random random = new Random(42);
+        offsets = new long[1024];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = random.nextInt(size - readSize);
+        }
+        dest = new byte[readSize];
+        int n = index.read(offsets[0], dest, 0, readSize);
+        if (n != readSize || !Arrays.equals(dest, Arrays.copyOfRange(src,
+                (int) offsets[0], (int) offsets[0] + readSize))) {
+            throw new IllegalStateException(
+                    "Indexed read does not match the input at " + offsets[0]);
+        }
+    }
+
+    private long nextOffset() {
+        next = (next + 1) & (offsets.length - 1);
+        return offsets[next];
+    }
+
+    @Benchmark
+    public int indexedRead() throws IOException {
+        return index.read(nextOffset(), dest, 0, readSize);
+    }
+
+    @Benchmark
+    public int sequentialRead() throws IOException {
+        InputStream in = new GZIPInputStream(new ByteArrayInputStream(data),
+                65536);
+        try {
+            long skip = nextOffset();
+            while (skip > 0) {
+                skip -= in.skip(skip);
+            }
+            int p = 0;
+            int n;
+            while (p < readSize && (n = in.read(dest, p, readSize - p)) != -1) {
+                p += n;
+            }
+            return p;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar GzipIndexTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(GzipIndexTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
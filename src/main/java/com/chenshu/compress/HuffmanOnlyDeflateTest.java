@@ -0,0 +1,59 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The {@code HUFFMAN_ONLY} column of {@link DeflateMatrixTest}, without the
+ * level sweep: with no match finding the level changes nothing, so it would
+ * only repeat the same run three times. {@link DeflateMatrixTest#main} runs
+ * this class along with its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HuffmanOnlyDeflateTest extends DeflateMatrixHarness {
+
+    @Setup
+    public void prepare() throws IOException {
+        prepare(1, "HUFFMAN_ONLY");
+    }
+
+    @Benchmark
+    public int huffmanOnlyCompress(ThroughputCounters counters)
+            throws IOException {
+        return compress(counters);
+    }
+
+    @Benchmark
+    public int huffmanOnlyDecompress(ThroughputCounters counters)
+            throws IOException {
+        return decompress(counters);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar HuffmanOnlyDeflateTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(HuffmanOnlyDeflateTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.chenshu.compress;
+
+import java.util.zip.Inflater;
+
+class InflaterPool extends ZlibPool<Inflater> {
+
+    private final boolean nowrap;
+
+    InflaterPool(Mode mode, int capacity, boolean nowrap) {
+        super(mode, capacity);
+        this.nowrap = nowrap;
+    }
+
+    @Override
+    protected Inflater create() {
+        return new Inflater(nowrap);
+    }
+
+    @Override
+    protected void reset(Inflater inf) {
+        inf.reset();
+    }
+
+    @Override
+    protected void end(Inflater inf) {
+        inf.end();
+    }
+}
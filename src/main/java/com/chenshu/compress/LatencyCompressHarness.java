@@ -0,0 +1,66 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Inputs shared by {@link LatencyCompressTest} and
+ * {@link NoLevelLatencyCompressTest}. A codec runs either as a
+ * {@link StreamFactory}, building new streams on every call, or as a
+ * long-lived {@link BlockCodec} writing into preallocated buffers.
+ */
+@State(Scope.Thread)
+public abstract class LatencyCompressHarness {
+
+    protected byte[] src;
+    protected byte[] data;
+    protected int dataLength;
+    protected byte[] compressed;
+    protected byte[] dest;
+    protected StreamFactory factory;
+    protected BlockCodec codec;
+
+    @Param({ "200", "1024", "4096", "8192" })
+    protected int size;
+
+    @Param({ "JSON", "RECORDS" })
+    protected String corpus;
+
+    protected void prepare(StreamFactory factory) throws IOException {
+        this.factory = factory;
+        src = Corpus.load(corpus, size);
+        dest = new byte[size];
+        compressed = CompressUtils.roundTrip(factory, src);
+    }
+
+    protected void prepare(String name, BlockCodec codec) throws IOException {
+        this.codec = codec;
+        src = Corpus.load(corpus, size);
+        dest = new byte[size];
+        data = new byte[codec.maxCompressedLength(size)];
+        dataLength = codec.compress(src, 0, size, data, 0);
+        if (codec.decompress(data, 0, dataLength, dest, 0) != size
+                || !Arrays.equals(src, dest)) {
+            throw new IllegalStateException(name
+                    + " round trip does not match the input");
+        }
+    }
+
+    protected int compress() throws IOException {
+        if (codec != null) {
+            return codec.compress(src, 0, src.length, data, 0);
+        }
+        return CompressUtils.compress(factory, src).length;
+    }
+
+    protected int decompress() throws IOException {
+        if (codec != null) {
+            return codec.decompress(data, 0, dataLength, dest, 0);
+        }
+        return CompressUtils.decompress(factory, compressed, size).length;
+    }
+}
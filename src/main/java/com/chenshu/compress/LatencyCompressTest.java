@@ -0,0 +1,136 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.util.Statistics;
+
+/**
+ * Small-payload latency distribution per codec and level. The plain codec
+ * names build new streams through the codec's {@link StreamFactory} on every
+ * call, as CompressTest does; the {@code _REUSED} ones go through a
+ * long-lived {@link BlockCodec} producing the same format. Only the JDK
+ * gzip and zlib contexts can be reused, so there is no reused row for the
+ * commons gzip and deflate streams: the JDK codec is what would be measured.
+ * bzip2 has no level and runs in {@link NoLevelLatencyCompressTest}; the
+ * {@link #main} here runs and reports both.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LatencyCompressTest extends LatencyCompressHarness {
+
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private static final String REUSED = "_REUSED";
+
+    @Param({ "JDK_GZIP", "COMMONS_GZIP", "COMMONS_DEFLATE", "JDK_GZIP_REUSED",
+            "JDK_DEFLATE_REUSED" })
+    protected String codecName;
+
+    @Param({ "1", "6", "9" })
+    protected int level;
+
+    @Setup
+    public void prepare() throws IOException {
+        if ("JDK_GZIP".equals(codecName)) {
+            prepare(new CompressSizeTest.JdkGzipCompress(level));
+        } else if ("COMMONS_GZIP".equals(codecName)) {
+            prepare(new CompressSizeTest.CommonsGzipCompress(level));
+        } else if ("COMMONS_DEFLATE".equals(codecName)) {
+            prepare(new CompressSizeTest.CommonsDeflateCompress(level));
+        } else if ("JDK_GZIP_REUSED".equals(codecName)) {
+            prepare(codecName, new GzipBlockCodec(level));
+        } else if ("JDK_DEFLATE_REUSED".equals(codecName)) {
+            prepare(codecName, new DeflateBlockCodec(level, false));
+        } else {
+            throw new IllegalArgumentException("Unknown codec: " + codecName);
+        }
+    }
+
+    @Benchmark
+    public int compress() throws IOException {
+        return super.compress();
+    }
+
+    @Benchmark
+    public int decompress() throws IOException {
+        return super.decompress();
+    }
+
+    /**
+     * 
+     * java -cp target/benchmarks.jar com.chenshu.compress.LatencyCompressTest
+     * 
+     * writes the full JMH result (with histogram percentiles) to
+     * target/latency-results.json and a p50/p90/p99/p99.9/max table to
+     * target/latency-percentiles.csv
+     * 
+     */
+    public static void main(String[] args) throws RunnerException,
+            IOException {
+        Options opt = new OptionsBuilder()
+                .include("\\.(" + LatencyCompressTest.class.getSimpleName()
+                        + "|" + NoLevelLatencyCompressTest.class.getSimpleName()
+                        + ")\\.")
+                .warmupIterations(5).measurementIterations(5).forks(1)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/latency-results.json").build();
+
+        Collection<RunResult> results = new Runner(opt).run();
+
+        PrintWriter out = new PrintWriter(Files.newBufferedWriter(
+                Paths.get("target/latency-percentiles.csv"),
+                Charset.forName("UTF-8")));
+        try {
+            out.println("benchmark,codec,level,size,corpus,reuse,"
+                    + "p50_us,p90_us,p99_us,p99.9_us,max_us");
+            for (RunResult r : results) {
+                StringBuilder line = new StringBuilder();
+                String benchmark = r.getParams().getBenchmark();
+                line.append(benchmark.substring(benchmark.lastIndexOf('.') + 1));
+                for (String p : new String[] { "codecName", "level", "size",
+                        "corpus" }) {
+                    // no level for the NoLevelLatencyCompressTest rows
+                    String value = r.getParams().getParam(p);
+                    line.append(',').append(value == null ? "" : value);
+                }
+                line.append(',').append(
+                        r.getParams().getParam("codecName").endsWith(REUSED));
+                Statistics stats = r.getPrimaryResult().getStatistics();
+                for (double p : PERCENTILES) {
+                    line.append(',').append(
+                            String.format(Locale.ROOT, "%.3f",
+                                    stats.getPercentile(p)));
+                }
+                line.append(',').append(
+                        String.format(Locale.ROOT, "%.3f", stats.getMax()));
+                out.println(line);
+                System.out.println(line);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+}
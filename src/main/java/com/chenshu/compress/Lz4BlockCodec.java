@@ -0,0 +1,352 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Pure-Java LZ77 codec producing the LZ4 block format (token, literals,
+ * little-endian 16-bit offset, 255-run length extensions), so its output can
+ * be read by any LZ4 implementation. Matches are found with a single-probe
+ * hash table of 4-byte sequences; there is no entropy stage.
+ * <p>
+ * {@link #safe()} reads one byte at a time and validates every length and
+ * offset while decoding. {@link #fast()} reads 4/8-byte words through a
+ * little-endian {@link ByteBuffer} view (the JIT turns these into plain
+ * loads), copies overlapping matches by doubling and leaves bounds checking
+ * of corrupt input to the array accesses themselves.
+ * <p>
+ * Instances keep their hash table between calls and are not thread-safe.
+ */
+abstract class Lz4BlockCodec implements BlockCodec {
+
+    static final int MIN_MATCH = 4;
+    static final int MAX_DISTANCE = 65535;
+
+    // the last match must start at least 12 bytes before the end and the
+    // last 5 bytes are always literals
+    private static final int MF_LIMIT = 12;
+    private static final int LAST_LITERALS = 5;
+    private static final int MIN_LENGTH = MF_LIMIT + 1;
+
+    private static final int HASH_LOG = 12;
+    private static final int SKIP_STRENGTH = 6;
+    private static final int RUN_MASK = 15;
+
+    private final int[] table = new int[1 << HASH_LOG];
+
+    public static Lz4BlockCodec safe() {
+        return new Safe();
+    }
+
+    public static Lz4BlockCodec fast() {
+        return new Fast();
+    }
+
+    static int maxCompressedLength0(int len) {
+        return len + len / 255 + 16;
+    }
+
+    @Override
+    public int maxCompressedLength(int len) {
+        return maxCompressedLength0(len);
+    }
+
+    abstract int readInt(byte[] b, int i);
+
+    /**
+     * Number of equal bytes at {@code a} and {@code b}, not reading at or past
+     * {@code limit} on the {@code a} side.
+     */
+    abstract int commonBytes(byte[] b, int a, int ref, int limit);
+
+    private static int hash(int seq) {
+        return (seq * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    @Override
+    public int compress(byte[] src, int off, int len, byte[] dst, int dstOff)
+            throws IOException {
+        if (dst.length - dstOff < maxCompressedLength(len)) {
+            throw new IOException("Destination buffer too small");
+        }
+        int end = off + len;
+        int anchor = off;
+        int dp = dstOff;
+        if (len >= MIN_LENGTH) {
+            // stale entries are harmless, candidates are always verified
+            Arrays.fill(table, 0);
+            int[] table = this.table;
+            int mfLimit = end - MF_LIMIT;
+            int matchLimit = end - LAST_LITERALS;
+            int sp = off + 1;
+            while (sp < mfLimit) {
+                int seq = readInt(src, sp);
+                int h = hash(seq);
+                int ref = off + table[h];
+                table[h] = sp - off;
+                if (ref >= sp || sp - ref > MAX_DISTANCE
+                        || readInt(src, ref) != seq) {
+                    sp += 1 + ((sp - anchor) >>> SKIP_STRENGTH);
+                    continue;
+                }
+                while (sp > anchor && ref > off
+                        && src[sp - 1] == src[ref - 1]) {
+                    sp--;
+                    ref--;
+                }
+                int matchLen = MIN_MATCH
+                        + commonBytes(src, sp + MIN_MATCH, ref + MIN_MATCH,
+                                matchLimit);
+                dp = writeSequence(src, anchor, sp - anchor, sp - ref,
+                        matchLen, dst, dp);
+                sp += matchLen;
+                anchor = sp;
+                if (sp < mfLimit) {
+                    table[hash(readInt(src, sp - 2))] = sp - 2 - off;
+                }
+            }
+        }
+        return writeLastLiterals(src, anchor, end - anchor, dst, dp) - dstOff;
+    }
+
+    private static int writeSequence(byte[] src, int lit, int litLen,
+            int offset, int matchLen, byte[] dst, int dp) {
+        int token = dp++;
+        if (litLen >= RUN_MASK) {
+            dst[token] = (byte) (RUN_MASK << 4);
+            dp = writeLength(litLen - RUN_MASK, dst, dp);
+        } else {
+            dst[token] = (byte) (litLen << 4);
+        }
+        System.arraycopy(src, lit, dst, dp, litLen);
+        dp += litLen;
+        dst[dp++] = (byte) offset;
+        dst[dp++] = (byte) (offset >>> 8);
+        int ml = matchLen - MIN_MATCH;
+        if (ml >= RUN_MASK) {
+            dst[token] |= RUN_MASK;
+            dp = writeLength(ml - RUN_MASK, dst, dp);
+        } else {
+            dst[token] |= ml;
+        }
+        return dp;
+    }
+
+    private static int writeLastLiterals(byte[] src, int lit, int litLen,
+            byte[] dst, int dp) {
+        if (litLen >= RUN_MASK) {
+            dst[dp++] = (byte) (RUN_MASK << 4);
+            dp = writeLength(litLen - RUN_MASK, dst, dp);
+        } else {
+            dst[dp++] = (byte) (litLen << 4);
+        }
+        System.arraycopy(src, lit, dst, dp, litLen);
+        return dp + litLen;
+    }
+
+    private static int writeLength(int n, byte[] dst, int dp) {
+        while (n >= 255) {
+            dst[dp++] = (byte) 255;
+            n -= 255;
+        }
+        dst[dp++] = (byte) n;
+        return dp;
+    }
+
+    private static IOException truncated() {
+        return new IOException("Unexpected end of LZ4 block");
+    }
+
+    static class Safe extends Lz4BlockCodec {
+
+        @Override
+        int readInt(byte[] b, int i) {
+            return (b[i] & 0xff) | (b[i + 1] & 0xff) << 8
+                    | (b[i + 2] & 0xff) << 16 | (b[i + 3] & 0xff) << 24;
+        }
+
+        @Override
+        int commonBytes(byte[] b, int a, int ref, int limit) {
+            int start = a;
+            while (a < limit && b[a] == b[ref]) {
+                a++;
+                ref++;
+            }
+            return a - start;
+        }
+
+        @Override
+        public int decompress(byte[] src, int off, int len, byte[] dst,
+                int dstOff) throws IOException {
+            int sp = off;
+            int end = off + len;
+            int dp = dstOff;
+            while (true) {
+                if (sp >= end) {
+                    throw truncated();
+                }
+                int token = src[sp++] & 0xff;
+                int litLen = token >>> 4;
+                if (litLen == RUN_MASK) {
+                    int b;
+                    do {
+                        if (sp >= end) {
+                            throw truncated();
+                        }
+                        b = src[sp++] & 0xff;
+                        litLen += b;
+                    } while (b == 255);
+                }
+                if (litLen < 0 || litLen > end - sp
+                        || litLen > dst.length - dp) {
+                    throw new IOException("Malformed LZ4 literal run");
+                }
+                System.arraycopy(src, sp, dst, dp, litLen);
+                sp += litLen;
+                dp += litLen;
+                if (sp == end) {
+                    return dp - dstOff;
+                }
+                if (end - sp < 2) {
+                    throw truncated();
+                }
+                int offset = (src[sp] & 0xff) | (src[sp + 1] & 0xff) << 8;
+                sp += 2;
+                if (offset == 0 || offset > dp - dstOff) {
+                    throw new IOException("Malformed LZ4 match offset");
+                }
+                int matchLen = token & RUN_MASK;
+                if (matchLen == RUN_MASK) {
+                    int b;
+                    do {
+                        if (sp >= end) {
+                            throw truncated();
+                        }
+                        b = src[sp++] & 0xff;
+                        matchLen += b;
+                    } while (b == 255);
+                }
+                matchLen += MIN_MATCH;
+                if (matchLen < MIN_MATCH || matchLen > dst.length - dp) {
+                    throw new IOException("Malformed LZ4 match length");
+                }
+                int ref = dp - offset;
+                if (offset >= matchLen) {
+                    System.arraycopy(dst, ref, dst, dp, matchLen);
+                    dp += matchLen;
+                } else {
+                    for (int i = 0; i < matchLen; i++) {
+                        dst[dp++] = dst[ref++];
+                    }
+                }
+            }
+        }
+    }
+
+    static class Fast extends Lz4BlockCodec {
+
+        // one-element cache of the little-endian view of the last array seen,
+        // so the hot loops don't allocate a ByteBuffer per call
+        private byte[] viewed;
+        private ByteBuffer view;
+
+        private ByteBuffer view(byte[] b) {
+            if (b != viewed) {
+                view = ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN);
+                viewed = b;
+            }
+            return view;
+        }
+
+        @Override
+        public int compress(byte[] src, int off, int len, byte[] dst,
+                int dstOff) throws IOException {
+            view(src);
+            return super.compress(src, off, len, dst, dstOff);
+        }
+
+        @Override
+        int readInt(byte[] b, int i) {
+            return view.getInt(i);
+        }
+
+        @Override
+        int commonBytes(byte[] b, int a, int ref, int limit) {
+            ByteBuffer v = view;
+            int start = a;
+            while (a <= limit - 8) {
+                long diff = v.getLong(a) ^ v.getLong(ref);
+                if (diff != 0) {
+                    return a - start + (Long.numberOfTrailingZeros(diff) >>> 3);
+                }
+                a += 8;
+                ref += 8;
+            }
+            while (a < limit && b[a] == b[ref]) {
+                a++;
+                ref++;
+            }
+            return a - start;
+        }
+
+        @Override
+        public int decompress(byte[] src, int off, int len, byte[] dst,
+                int dstOff) throws IOException {
+            int sp = off;
+            int end = off + len;
+            int dp = dstOff;
+            try {
+                while (true) {
+                    int token = src[sp++] & 0xff;
+                    int litLen = token >>> 4;
+                    if (litLen == RUN_MASK) {
+                        int b;
+                        do {
+                            b = src[sp++] & 0xff;
+                            litLen += b;
+                        } while (b == 255);
+                    }
+                    System.arraycopy(src, sp, dst, dp, litLen);
+                    sp += litLen;
+                    dp += litLen;
+                    if (sp >= end) {
+                        if (sp > end) {
+                            throw new IOException("Malformed LZ4 literal run");
+                        }
+                        return dp - dstOff;
+                    }
+                    int offset = (src[sp] & 0xff) | (src[sp + 1] & 0xff) << 8;
+                    sp += 2;
+                    int matchLen = token & RUN_MASK;
+                    if (matchLen == RUN_MASK) {
+                        int b;
+                        do {
+                            b = src[sp++] & 0xff;
+                            matchLen += b;
+                        } while (b == 255);
+                    }
+                    matchLen += MIN_MATCH;
+                    int ref = dp - offset;
+                    if (offset == 0 || ref < dstOff) {
+                        throw new IOException("Malformed LZ4 match offset");
+                    }
+                    // an overlapping match repeats the last offset bytes;
+                    // copy them in chunks that double each round
+                    int copied = 0;
+                    int chunk = offset;
+                    while (copied < matchLen) {
+                        int n = Math.min(chunk, matchLen - copied);
+                        System.arraycopy(dst, ref, dst, dp + copied, n);
+                        copied += n;
+                        chunk = copied + offset;
+                    }
+                    dp += matchLen;
+                }
+            } catch (IndexOutOfBoundsException e) {
+                throw new IOException("Malformed LZ4 block", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.chenshu.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * {@link StreamFactory} for the LZ4 frame format on top of
+ * {@link Lz4BlockCodec}: magic, frame descriptor with independent blocks, a
+ * size-prefixed block per {@code blockSize} bytes of input (stored raw when it
+ * does not shrink), an end mark and the XXH32 content checksum, checked on
+ * read like the CRCs of the gzip and bzip2 streams it is measured against.
+ * Block checksums are not written.
+ */
+class Lz4FrameCompress implements StreamFactory {
+
+    static final int MAGIC = 0x184D2204;
+
+    private static final int FLG_VERSION = 0x40;
+    private static final int FLG_BLOCK_INDEPENDENCE = 0x20;
+    private static final int FLG_BLOCK_CHECKSUM = 0x10;
+    private static final int FLG_CONTENT_SIZE = 0x08;
+    private static final int FLG_CONTENT_CHECKSUM = 0x04;
+    private static final int FLG_DICT_ID = 0x01;
+    private static final int UNCOMPRESSED = 0x80000000;
+
+    private static final int PRIME1 = 0x9E3779B1;
+    private static final int PRIME2 = 0x85EBCA77;
+    private static final int PRIME3 = 0xC2B2AE3D;
+    private static final int PRIME4 = 0x27D4EB2F;
+    private static final int PRIME5 = 0x165667B1;
+
+    private final boolean fast;
+    private final int blockSize;
+
+    public Lz4FrameCompress(boolean fast) {
+        this(fast, 64 * 1024);
+    }
+
+    /**
+     * @param blockSize 64 KB, 256 KB, 1 MB or 4 MB, the sizes the frame
+     *        descriptor can express
+     */
+    public Lz4FrameCompress(boolean fast, int blockSize) {
+        blockSizeId(blockSize);
+        this.fast = fast;
+        this.blockSize = blockSize;
+    }
+
+    private static int blockSizeId(int blockSize) {
+        for (int id = 4; id <= 7; id++) {
+            if (blockSize == 1 << (8 + 2 * id)) {
+                return id;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported block size: "
+                + blockSize);
+    }
+
+    private Lz4BlockCodec newCodec() {
+        return fast ? Lz4BlockCodec.fast() : Lz4BlockCodec.safe();
+    }
+
+    @Override
+    public InputStream getInputStream(InputStream in) throws IOException {
+        return new Lz4FrameInputStream(in, newCodec());
+    }
+
+    @Override
+    public OutputStream getOutputStream(OutputStream out) throws IOException {
+        return new Lz4FrameOutputStream(out, newCodec(), blockSize);
+    }
+
+    /**
+     * The header checksum byte: the second byte of XXH32 (seed 0) over the
+     * frame descriptor.
+     */
+    static int headerChecksum(byte[] b, int off, int len) {
+        Xxh32 h = new Xxh32();
+        h.update(b, off, len);
+        return (h.getValue() >>> 8) & 0xff;
+    }
+
+    static int readInt(byte[] b, int off) {
+        return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8
+                | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+    }
+
+    static void writeInt(byte[] b, int off, int v) {
+        b[off] = (byte) v;
+        b[off + 1] = (byte) (v >>> 8);
+        b[off + 2] = (byte) (v >>> 16);
+        b[off + 3] = (byte) (v >>> 24);
+    }
+
+    static class Lz4FrameOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final Lz4BlockCodec codec;
+        private final byte[] buf;
+        private final byte[] block;
+        private final Xxh32 checksum = new Xxh32();
+        private int count;
+        private boolean finished;
+
+        Lz4FrameOutputStream(OutputStream out, Lz4BlockCodec codec,
+                int blockSize) throws IOException {
+            this.out = out;
+            this.codec = codec;
+            this.buf = new byte[blockSize];
+            this.block = new byte[4 + codec.maxCompressedLength(blockSize)];
+            byte[] header = new byte[7];
+            writeInt(header, 0, MAGIC);
+            header[4] = (byte) (FLG_VERSION | FLG_BLOCK_INDEPENDENCE
+                    | FLG_CONTENT_CHECKSUM);
+            header[5] = (byte) (blockSizeId(blockSize) << 4);
+            header[6] = (byte) headerChecksum(header, 4, 2);
+            out.write(header);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buf.length) {
+                flushBlock();
+            }
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buf.length) {
+                    flushBlock();
+                }
+                int n = Math.min(len, buf.length - count);
+                System.arraycopy(b, off, buf, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            checksum.update(buf, 0, count);
+            int n = codec.compress(buf, 0, count, block, 4);
+            if (n < count) {
+                writeInt(block, 0, n);
+                out.write(block, 0, 4 + n);
+            } else {
+                writeInt(block, 0, count | UNCOMPRESSED);
+                out.write(block, 0, 4);
+                out.write(buf, 0, count);
+            }
+            count = 0;
+        }
+
+        public void finish() throws IOException {
+            if (!finished) {
+                finished = true;
+                flushBlock();
+                // end mark followed by the content checksum
+                byte[] end = new byte[8];
+                writeInt(end, 4, checksum.getValue());
+                out.write(end);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                finish();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    static class Lz4FrameInputStream extends InputStream {
+        private final InputStream in;
+        private final Lz4BlockCodec codec;
+        private final byte[] buf;
+        private final Xxh32 checksum;
+        private byte[] block;
+        private int pos;
+        private int limit;
+        private boolean eof;
+
+        Lz4FrameInputStream(InputStream in, Lz4BlockCodec codec)
+                throws IOException {
+            this.in = in;
+            this.codec = codec;
+            byte[] header = new byte[7];
+            readFully(header, 0, 6);
+            if (readInt(header, 0) != MAGIC) {
+                throw new IOException("Not in LZ4 frame format");
+            }
+            int flg = header[4] & 0xff;
+            if ((flg & 0xC0) != FLG_VERSION) {
+                throw new IOException("Unsupported LZ4 frame version");
+            }
+            if ((flg & (FLG_BLOCK_CHECKSUM | FLG_DICT_ID)) != 0) {
+                throw new IOException("Unsupported LZ4 frame flags: " + flg);
+            }
+            int descriptor = 2;
+            if ((flg & FLG_CONTENT_SIZE) != 0) {
+                byte[] h = new byte[15];
+                System.arraycopy(header, 0, h, 0, 6);
+                readFully(h, 6, 9);
+                header = h;
+                descriptor += 8;
+            } else {
+                readFully(header, 6, 1);
+            }
+            if ((header[4 + descriptor] & 0xff) != headerChecksum(header, 4,
+                    descriptor)) {
+                throw new IOException("Corrupt LZ4 frame descriptor");
+            }
+            int id = (header[5] >>> 4) & 7;
+            if (id < 4) {
+                throw new IOException("Unsupported LZ4 block size id: " + id);
+            }
+            this.buf = new byte[1 << (8 + 2 * id)];
+            this.checksum = (flg & FLG_CONTENT_CHECKSUM) != 0 ? new Xxh32()
+                    : null;
+        }
+
+        private void readFully(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = in.read(b, off, len);
+                if (n == -1) {
+                    throw new EOFException("Unexpected end of LZ4 frame");
+                }
+                off += n;
+                len -= n;
+            }
+        }
+
+        private boolean nextBlock() throws IOException {
+            byte[] size = new byte[4];
+            readFully(size, 0, 4);
+            int n = readInt(size, 0);
+            if (n == 0) {
+                eof = true;
+                if (checksum != null) {
+                    readFully(size, 0, 4);
+                    if (readInt(size, 0) != checksum.getValue()) {
+                        throw new IOException("LZ4 content checksum error");
+                    }
+                }
+                return false;
+            }
+            int len = n & ~UNCOMPRESSED;
+            if (len > buf.length) {
+                throw new IOException("LZ4 block larger than declared: " + len);
+            }
+            if ((n & UNCOMPRESSED) != 0) {
+                readFully(buf, 0, len);
+                limit = len;
+            } else {
+                if (block == null) {
+                    block = new byte[buf.length];
+                }
+                readFully(block, 0, len);
+                limit = codec.decompress(block, 0, len, buf, 0);
+            }
+            if (checksum != null) {
+                checksum.update(buf, 0, limit);
+            }
+            pos = 0;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (pos == limit) {
+                if (eof || !nextBlock()) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return limit - pos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Streaming XXH32 with seed 0, the hash the frame format uses for its
+     * header and content checksums.
+     */
+    static class Xxh32 {
+        private int v1 = PRIME1 + PRIME2;
+        private int v2 = PRIME2;
+        private int v3 = 0;
+        private int v4 = -PRIME1;
+        private final byte[] stripe = new byte[16];
+        private int buffered;
+        private long length;
+
+        void update(byte[] b, int off, int len) {
+            length += len;
+            if (buffered > 0) {
+                int n = Math.min(len, 16 - buffered);
+                System.arraycopy(b, off, stripe, buffered, n);
+                buffered += n;
+                off += n;
+                len -= n;
+                if (buffered < 16) {
+                    return;
+                }
+                round(stripe, 0);
+                buffered = 0;
+            }
+            for (; len >= 16; off += 16, len -= 16) {
+                round(b, off);
+            }
+            System.arraycopy(b, off, stripe, 0, len);
+            buffered = len;
+        }
+
+        private void round(byte[] b, int off) {
+            v1 = Integer.rotateLeft(v1 + readInt(b, off) * PRIME2, 13) * PRIME1;
+            v2 = Integer.rotateLeft(v2 + readInt(b, off + 4) * PRIME2, 13)
+                    * PRIME1;
+            v3 = Integer.rotateLeft(v3 + readInt(b, off + 8) * PRIME2, 13)
+                    * PRIME1;
+            v4 = Integer.rotateLeft(v4 + readInt(b, off + 12) * PRIME2, 13)
+                    * PRIME1;
+        }
+
+        int getValue() {
+            int h;
+            if (length >= 16) {
+                h = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7)
+                        + Integer.rotateLeft(v3, 12)
+                        + Integer.rotateLeft(v4, 18);
+            } else {
+                h = PRIME5;
+            }
+            h += (int) length;
+            int i = 0;
+            for (; i + 4 <= buffered; i += 4) {
+                h += readInt(stripe, i) * PRIME3;
+                h = Integer.rotateLeft(h, 17) * PRIME4;
+            }
+            for (; i < buffered; i++) {
+                h += (stripe[i] & 0xff) * PRIME5;
+                h = Integer.rotateLeft(h, 11) * PRIME1;
+            }
+            h ^= h >>> 15;
+            h *= PRIME2;
+            h ^= h >>> 13;
+            h *= PRIME3;
+            h ^= h >>> 16;
+            return h;
+        }
+    }
+}
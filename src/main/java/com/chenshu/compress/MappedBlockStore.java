@@ -0,0 +1,212 @@
+package com.chenshu.compress;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * File-backed {@link BlockFrame} for inputs that do not fit on the heap. The
+ * frame is mapped with {@link FileChannel#map} in segments, as one mapping
+ * cannot exceed 2 GB; each segment overlaps the next by one maximal block so
+ * that every block lies entirely inside the segment its header starts in.
+ * A block is copied out of the mapping into a per-thread array, since the
+ * codecs only take arrays, and decoded straight into the caller's buffer.
+ */
+final class MappedBlockStore implements BlockSource, Closeable {
+
+    static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final BlockFrame.Header header;
+    private final BlockFrame.Index index;
+    private final long segmentSize;
+    private final MappedByteBuffer[] segments;
+    private final int maxBlock;
+    // offset of the end marker
+    private final long end;
+    private final List<BlockCodec> codecs = Collections
+            .synchronizedList(new ArrayList<BlockCodec>());
+    private final ThreadLocal<BlockCodec> codec =
+            new ThreadLocal<BlockCodec>() {
+            @Override
+            protected BlockCodec initialValue() {
+                BlockCodec c = header.codec.newCodec(header.level);
+                codecs.add(c);
+                return c;
+            }
+        };
+    private final ThreadLocal<byte[]> packed = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[maxBlock];
+        }
+    };
+    private final ThreadLocal<byte[]> scratch = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[header.blockSize];
+        }
+    };
+
+    private MappedBlockStore(FileChannel channel, long segmentSize)
+            throws IOException {
+        this.channel = channel;
+        this.segmentSize = segmentSize;
+        long size = channel.size();
+        this.header = BlockFrame.readHeader(read(0, BlockFrame.HEADER_SIZE));
+        BlockFrame.Footer footer = BlockFrame.readFooter(read(size
+                - BlockFrame.FOOTER_SIZE, BlockFrame.FOOTER_SIZE), size);
+        this.index = BlockFrame.readIndex(read(footer.indexOffset,
+                footer.count * BlockFrame.INDEX_ENTRY_SIZE), footer,
+                header.blockSize);
+        // a block is never stored larger than raw
+        this.maxBlock = BlockFrame.BLOCK_HEADER_SIZE + header.blockSize;
+        if (segmentSize + maxBlock > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment too large: "
+                    + segmentSize);
+        }
+        this.end = footer.indexOffset - 4;
+        this.segments = new MappedByteBuffer[(int) ((footer.indexOffset
+                + segmentSize - 1) / segmentSize)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = i * segmentSize;
+            long len = Math.min(footer.indexOffset - start, segmentSize
+                    + maxBlock);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                    len);
+        }
+    }
+
+    private ByteBuffer read(long pos, int len) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(len);
+        while (b.hasRemaining()) {
+            if (channel.read(b, pos + b.position()) == -1) {
+                throw new EOFException("Truncated block frame");
+            }
+        }
+        b.flip();
+        return b;
+    }
+
+    static MappedBlockStore open(Path file) throws IOException {
+        return open(file, SEGMENT_SIZE);
+    }
+
+    static MappedBlockStore open(Path file, long segmentSize)
+            throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new MappedBlockStore(channel, segmentSize);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Compresses {@code in} into a new block frame at {@code file} without
+     * holding more than a block of it in memory.
+     *
+     * @return the file size
+     */
+    static long write(Path file, InputStream in, BlockFrame.Codec codec,
+            int level, int blockSize) throws IOException {
+        OutputStream out = new BlockFrameWriter(new BufferedOutputStream(
+                Files.newOutputStream(file), 65536), codec, level, blockSize);
+        try {
+            byte[] buf = new byte[65536];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+        } finally {
+            out.close();
+        }
+        return Files.size(file);
+    }
+
+    public BlockFrame.Codec codec() {
+        return header.codec;
+    }
+
+    @Override
+    public int blockSize() {
+        return header.blockSize;
+    }
+
+    @Override
+    public int blockCount() {
+        return index.offsets.length;
+    }
+
+    @Override
+    public long length() {
+        return index.length;
+    }
+
+    /**
+     * @return the size of block {@code i} in the file, header included
+     */
+    public int storedSize(int i) {
+        return (int) ((i + 1 < index.offsets.length ? index.offsets[i + 1]
+                : end) - index.offsets[i]);
+    }
+
+    @Override
+    public int readBlock(int i, byte[] dst, int off) throws IOException {
+        long offset = index.offsets[i];
+        ByteBuffer segment = BlockFrame.order(segments[(int) (offset
+                / segmentSize)].duplicate());
+        int p = (int) (offset % segmentSize);
+        int size = BlockFrame.blockSize(segment.getInt(p));
+        if (size < BlockFrame.BLOCK_HEADER_SIZE || size > maxBlock
+                || size > segment.limit() - p) {
+            throw new IOException("Corrupt block header at " + offset);
+        }
+        byte[] b = packed.get();
+        segment.position(p);
+        segment.get(b, 0, size);
+        return BlockFrame.decodeBlock(codec.get(), b, 0, dst, off);
+    }
+
+    /**
+     * Reads up to {@code len} bytes starting at uncompressed offset
+     * {@code pos}, decoding only the blocks they fall in.
+     *
+     * @return number of bytes read, -1 at or past the end
+     */
+    public int read(long pos, byte[] dst, int off, int len)
+            throws IOException {
+        return BlockFrame.read(this, scratch.get(), pos, dst, off, len);
+    }
+
+    /**
+     * Releases the codecs and the file. The mappings stay valid until they
+     * are garbage collected, as there is no supported way to unmap them.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (codecs) {
+            for (BlockCodec c : codecs) {
+                BlockFrame.Codec.release(c);
+            }
+            codecs.clear();
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,171 @@
+package com.chenshu.compress;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@link MappedBlockStore} over a file whose stored, compressed size is four
+ * times the fork's heap: a sequential scan decoding one block per operation
+ * (reported as MB/s by {@link ThroughputCounters}) and the latency of
+ * fetching a random block. The file is built from a repeated 64 MB corpus
+ * chunk, which blocks of at most 1 MB cannot tell apart from a real corpus,
+ * as many times over as it takes to reach {@code storedSize}, and is kept
+ * under {@code target/store} for later forks. The small {@code segmentSize}
+ * maps the same file in 17 segments, so that reads cross segment boundaries
+ * and land in the overlaps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(jvmArgsAppend = "-Xmx256m")
+public class MappedBlockStoreTest {
+
+    private static final int CHUNK = 64 * 1024 * 1024;
+
+    private MappedBlockStore store;
+    private byte[] dest;
+    private int scan;
+    private int[] blocks;
+    private int next;
+
+    @Param({ "LZ4", "DEFLATE" })
+    protected String codec;
+
+    @Param({ "1" })
+    protected int level;
+
+    @Param({ "65536", "1048576" })
+    protected int blockSize;
+
+    @Param({ "JSON" })
+    protected String corpus;
+
+    @Param({ "1073741824" })
+    protected long storedSize;
+
+    @Param({ "1073741824", "67108864" })
+    protected long segmentSize;
+
+    @Setup
+    public void prepare() throws IOException {
+        Path dir = Paths.get("target/store");
+        Path file = dir.resolve(corpus.toLowerCase(Locale.ROOT) + "-"
+                + codec.toLowerCase(Locale.ROOT) + "-" + level + "-"
+                + blockSize + "-" + storedSize + ".jbf");
+        if (!Files.isRegularFile(file)) {
+            Files.createDirectories(dir);
+            byte[] chunk = Corpus.load(corpus, CHUNK);
+            BlockFrame.Codec c = BlockFrame.Codec.valueOf(codec);
+            Path tmp = Files.createTempFile(dir, file.getFileName()
+                    .toString(), ".tmp");
+            // a single chunk first, to find how many make up storedSize
+            long chunkSize = MappedBlockStore.write(tmp,
+                    new ByteArrayInputStream(chunk), c, level, blockSize);
+            long length = (storedSize + chunkSize - 1) / chunkSize * CHUNK;
+            long size = MappedBlockStore.write(tmp, new Repeat(chunk, length),
+                    c, level, blockSize);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("store: " + size + " bytes for " + length);
+        }
+        store = MappedBlockStore.open(file, segmentSize);
+        dest = new byte[blockSize];
+
+        Random random = new Random(42);
+        blocks = new int[1024];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = random.nextInt(store.blockCount());
+        }
+    }
+
+    @TearDown
+    public void shutdown() throws IOException {
+        store.close();
+    }
+
+    @Benchmark
+    public int sequentialScan(ThroughputCounters counters) throws IOException {
+        int n = store.readBlock(scan, dest, 0);
+        counters.add(n, store.storedSize(scan));
+        scan = scan + 1 == store.blockCount() ? 0 : scan + 1;
+        return n;
+    }
+
+    @Benchmark
+    @BenchmarkMode({ Mode.SampleTime })
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int randomBlock() throws IOException {
+        next = (next + 1) & (blocks.length - 1);
+        return store.readBlock(blocks[next], dest, 0);
+    }
+
+    /**
+     * {@code data} over and over, up to {@code length} bytes.
+     */
+    static class Repeat extends InputStream {
+        private final byte[] data;
+        private long remaining;
+        private int pos;
+
+        Repeat(byte[] data, long length) {
+            this.data = data;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int n = (int) Math.min(Math.min(len, data.length - pos),
+                    remaining);
+            System.arraycopy(data, pos, b, off, n);
+            pos = pos + n == data.length ? 0 : pos + n;
+            remaining -= n;
+            return n;
+        }
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar MappedBlockStoreTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(MappedBlockStoreTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.chenshu.compress;
+
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a sequence of messages with one long-lived raw deflate context,
+ * flushing after each message so it can be sent on its own. Later messages
+ * can reference earlier ones, which is where the ratio gain over compressing
+ * each message independently comes from. As in permessage-deflate, the
+ * 00 00 FF FF tail every flush ends with is stripped; {@link MessageInflater}
+ * puts it back.
+ * <p>
+ * With {@code fullFlush} the window is also reset after every message, so the
+ * receiver can start decoding at any message, at the cost of most of the
+ * ratio gain.
+ */
+class MessageDeflater {
+
+    static final byte[] FLUSH_TAIL = { 0, 0, (byte) 0xff, (byte) 0xff };
+
+    // empty stored block plus a partial byte of the last block
+    private static final int FLUSH_OVERHEAD = 6;
+
+    private final Deflater def;
+    private final int flush;
+
+    public MessageDeflater(int level, boolean fullFlush) {
+        this.def = new Deflater(level, true);
+        this.flush = fullFlush ? Deflater.FULL_FLUSH : Deflater.SYNC_FLUSH;
+    }
+
+    int maxFrameLength(int len) {
+        return DeflateBlockCodec.deflateBound(len) + FLUSH_OVERHEAD;
+    }
+
+    /**
+     * @return length of the frame written to {@code dst} at {@code dstOff}
+     */
+    int deflate(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        def.setInput(src, off, len);
+        int p = dstOff;
+        // the flush is complete once deflate stops filling the buffer
+        int n;
+        do {
+            if (p == dst.length) {
+                throw new IllegalArgumentException(
+                        "Destination buffer too small");
+            }
+            n = def.deflate(dst, p, dst.length - p, flush);
+            p += n;
+        } while (p == dst.length);
+        if (p == dstOff && len == 0) {
+            // nothing to flush after the previous message: send the empty
+            // stored block 00 00 00 FF FF minus the tail (room for it was
+            // checked above)
+            dst[dstOff] = 0;
+            return 1;
+        }
+        if (!endsWithTail(dst, dstOff, p)) {
+            throw new IllegalStateException(
+                    "Flushed frame does not end in 00 00 FF FF");
+        }
+        return p - dstOff - FLUSH_TAIL.length;
+    }
+
+    private static boolean endsWithTail(byte[] b, int from, int to) {
+        if (to - from < FLUSH_TAIL.length) {
+            return false;
+        }
+        for (int i = 0; i < FLUSH_TAIL.length; i++) {
+            if (b[to - FLUSH_TAIL.length + i] != FLUSH_TAIL[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts a new session; the peer must reset its inflater too.
+     */
+    void reset() {
+        def.reset();
+    }
+
+    void end() {
+        def.end();
+    }
+}
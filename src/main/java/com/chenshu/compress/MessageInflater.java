@@ -0,0 +1,61 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Incremental decoder for frames produced by {@link MessageDeflater}; frames
+ * must be fed in order since each may refer back to the previous ones.
+ */
+class MessageInflater {
+
+    private final Inflater inf = new Inflater(true);
+
+    /**
+     * @return length of the message written to {@code dst} at {@code dstOff}
+     */
+    int inflate(byte[] frame, int off, int len, byte[] dst, int dstOff)
+            throws IOException {
+        int p = dstOff;
+        try {
+            inf.setInput(frame, off, len);
+            p += drain(dst, p);
+            inf.setInput(MessageDeflater.FLUSH_TAIL);
+            p += drain(dst, p);
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+        return p - dstOff;
+    }
+
+    private int drain(byte[] dst, int p) throws DataFormatException,
+            IOException {
+        int start = p;
+        while (true) {
+            int n = inf.inflate(dst, p, dst.length - p);
+            p += n;
+            if (inf.finished()) {
+                throw new ZipException("Unexpected final block in message");
+            }
+            if (n == 0) {
+                if (inf.needsInput()) {
+                    return p - start;
+                }
+                if (p == dst.length) {
+                    throw new IOException("Destination buffer too small");
+                }
+                throw new ZipException("Inflater stalled");
+            }
+        }
+    }
+
+    void reset() {
+        inf.reset();
+    }
+
+    void end() {
+        inf.end();
+    }
+}
@@ -0,0 +1,77 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The {@link BlockCodec}s without a compression level on the
+ * {@link BlockCompressTest} inputs, kept out of its level sweep so that they do
+ * not run three times over.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NoLevelBlockCompressTest extends BlockCompressHarness {
+
+    @Param({ "COMMONS_BZIP2", "LZ4", "LZ4_FAST", "SNAPPY" })
+    protected String codecName;
+
+    // in 100 KB units; BZip2BlockSizeTest sweeps it
+    @Param({ "9" })
+    protected int bzip2BlockSize;
+
+    @Setup
+    public void prepare() throws IOException {
+        prepare(codecName, newCodec(codecName, bzip2BlockSize));
+    }
+
+    static BlockCodec newCodec(String name, int bzip2BlockSize) {
+        if ("COMMONS_BZIP2".equals(name)) {
+            return StreamBlockCodec.commonsBZip2(bzip2BlockSize);
+        } else if ("LZ4".equals(name)) {
+            return Lz4BlockCodec.safe();
+        } else if ("LZ4_FAST".equals(name)) {
+            return Lz4BlockCodec.fast();
+        } else if ("SNAPPY".equals(name)) {
+            return new SnappyBlockCodec();
+        }
+        throw new IllegalArgumentException("Unknown codec: " + name);
+    }
+
+    @Benchmark
+    public int compress(AllocationProbe probe) throws IOException {
+        return super.compress(probe);
+    }
+
+    @Benchmark
+    public int decompress(AllocationProbe probe) throws IOException {
+        return super.decompress(probe);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar NoLevelBlockCompressTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(NoLevelBlockCompressTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The codecs without a compression level (bzip2, LZ4, Snappy, .Z) on the
+ * {@link CompressTest} inputs, kept out of its level sweep so that they do not
+ * run nine times over.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NoLevelCompressTest extends CompressHarness {
+
+    private byte[] data_commons_bz2;
+    private byte[] data_lz4;
+    private byte[] data_lz4_fast;
+    private byte[] data_snappy;
+    private byte[] data_z;
+
+    // in 100 KB units; BZip2BlockSizeTest sweeps it
+    @Param({ "9" })
+    protected int bzip2BlockSize;
+
+    @Setup
+    public void prepare() throws IOException {
+        src = Corpus.load(corpus, size);
+        data_commons_bz2 = prepareData(
+                new CompressSizeTest.CommonsBZip2Compress(bzip2BlockSize));
+        data_lz4 = prepareData(new Lz4FrameCompress(false));
+        data_lz4_fast = prepareData(new Lz4FrameCompress(true));
+        data_snappy = prepareData(new SnappyFramedCompress());
+        data_z = prepareData(new ZCompress());
+    }
+
+    @Benchmark
+    public int commonsBZip2Compress(ThroughputCounters counters)
+            throws IOException {
+        return compress(new CompressSizeTest.CommonsBZip2Compress(
+                bzip2BlockSize), counters);
+    }
+
+    @Benchmark
+    public int commonsBZip2Decompress(ThroughputCounters counters)
+            throws IOException {
+        return decompress(new CompressSizeTest.CommonsBZip2Compress(
+                bzip2BlockSize), data_commons_bz2, counters);
+    }
+
+    @Benchmark
+    public int lz4Compress(ThroughputCounters counters)
+            throws IOException {
+        return compress(new Lz4FrameCompress(false), counters);
+    }
+
+    @Benchmark
+    public int lz4Decompress(ThroughputCounters counters)
+            throws IOException {
+        return decompress(new Lz4FrameCompress(false), data_lz4, counters);
+    }
+
+    @Benchmark
+    public int lz4FastCompress(ThroughputCounters counters)
+            throws IOException {
+        return compress(new Lz4FrameCompress(true), counters);
+    }
+
+    @Benchmark
+    public int lz4FastDecompress(ThroughputCounters counters)
+            throws IOException {
+        return decompress(new Lz4FrameCompress(true), data_lz4_fast,
+                counters);
+    }
+
+    @Benchmark
+    public int snappyCompress(ThroughputCounters counters)
+            throws IOException {
+        return compress(new SnappyFramedCompress(), counters);
+    }
+
+    @Benchmark
+    public int snappyDecompress(ThroughputCounters counters)
+            throws IOException {
+        return decompress(new SnappyFramedCompress(), data_snappy, counters);
+    }
+
+    @Benchmark
+    public int zCompress(ThroughputCounters counters)
+            throws IOException {
+        return compress(new ZCompress(), counters);
+    }
+
+    @Benchmark
+    public int zDecompress(ThroughputCounters counters)
+            throws IOException {
+        return decompress(new ZCompress(), data_z, counters);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar NoLevelCompressTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(NoLevelCompressTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * bzip2 against its {@link EarlyAbortCompress} wrapper on the
+ * {@link EarlyAbortCompressTest} inputs, kept out of its level sweep.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NoLevelEarlyAbortCompressTest extends EarlyAbortCompressHarness {
+
+    @Param({ "COMMONS_BZIP2" })
+    protected String codecName;
+
+    // in 100 KB units; BZip2BlockSizeTest sweeps it
+    @Param({ "9" })
+    protected int bzip2BlockSize;
+
+    @Setup
+    public void prepare() throws IOException {
+        if ("COMMONS_BZIP2".equals(codecName)) {
+            prepare(new CompressSizeTest.CommonsBZip2Compress(bzip2BlockSize));
+        } else {
+            throw new IllegalArgumentException("Unknown codec: " + codecName);
+        }
+    }
+
+    @Benchmark
+    public int plainCompress(ThroughputCounters counters) throws IOException {
+        return super.plainCompress(counters);
+    }
+
+    @Benchmark
+    public int earlyAbortCompress(ThroughputCounters counters)
+            throws IOException {
+        return super.earlyAbortCompress(counters);
+    }
+
+    @Benchmark
+    public int plainDecompress(ThroughputCounters counters)
+            throws IOException {
+        return super.plainDecompress(counters);
+    }
+
+    @Benchmark
+    public int earlyAbortDecompress(ThroughputCounters counters)
+            throws IOException {
+        return super.earlyAbortDecompress(counters);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar NoLevelEarlyAbortCompressTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(NoLevelEarlyAbortCompressTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
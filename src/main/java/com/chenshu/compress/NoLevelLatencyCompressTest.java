@@ -0,0 +1,72 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * bzip2 on the {@link LatencyCompressTest} inputs, kept out of its level
+ * sweep. There is no reusable bzip2 context, so {@code COMMONS_BZIP2_REUSED}
+ * only drops the intermediate buffers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NoLevelLatencyCompressTest extends LatencyCompressHarness {
+
+    @Param({ "COMMONS_BZIP2", "COMMONS_BZIP2_REUSED" })
+    protected String codecName;
+
+    // in 100 KB units; BZip2BlockSizeTest sweeps it
+    @Param({ "9" })
+    protected int bzip2BlockSize;
+
+    @Setup
+    public void prepare() throws IOException {
+        if ("COMMONS_BZIP2".equals(codecName)) {
+            prepare(new CompressSizeTest.CommonsBZip2Compress(bzip2BlockSize));
+        } else if ("COMMONS_BZIP2_REUSED".equals(codecName)) {
+            prepare(codecName, StreamBlockCodec.commonsBZip2(bzip2BlockSize));
+        } else {
+            throw new IllegalArgumentException("Unknown codec: " + codecName);
+        }
+    }
+
+    @Benchmark
+    public int compress() throws IOException {
+        return super.compress();
+    }
+
+    @Benchmark
+    public int decompress() throws IOException {
+        return super.decompress();
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar NoLevelLatencyCompressTest -wi 5 -i 5 -f 1
+     * 
+     * LatencyCompressTest's main runs this as well and writes the percentiles
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(NoLevelLatencyCompressTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * bzip2 on the {@link ScalingTest} inputs, kept out of its level sweep.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NoLevelScalingTest extends ScalingHarness {
+
+    @Param({ "COMMONS_BZIP2" })
+    protected String codecName;
+
+    // in 100 KB units; BZip2BlockSizeTest sweeps it
+    @Param({ "9" })
+    protected int bzip2BlockSize;
+
+    @Setup
+    public void prepare() throws IOException {
+        if ("COMMONS_BZIP2".equals(codecName)) {
+            prepare(new CompressSizeTest.CommonsBZip2Compress(bzip2BlockSize));
+        } else {
+            throw new IllegalArgumentException("Unknown codec: " + codecName);
+        }
+    }
+
+    @Benchmark
+    public int compress(ThroughputCounters counters) throws IOException {
+        return super.compress(counters);
+    }
+
+    @Benchmark
+    public int decompress(ThroughputCounters counters) throws IOException {
+        return super.decompress(counters);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar NoLevelScalingTest -wi 5 -i 5 -f 1
+     * 
+     * ScalingTest's main runs this as well, once per thread count
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(NoLevelScalingTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
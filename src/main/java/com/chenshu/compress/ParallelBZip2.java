@@ -0,0 +1,318 @@
+package com.chenshu.compress;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+
+/**
+ * pbzip2-style bzip2 on top of commons-compress. Compression cuts the input
+ * into pieces that fit exactly one bzip2 block, compresses them concurrently
+ * as separate streams and stitches the (bit-aligned) blocks into a single
+ * stream. Decompression scans for block magic numbers and decodes each block
+ * as a stand-alone stream; a false positive in the scan makes that block fail
+ * its CRC, or the block CRCs fail the stream CRC, in which case the whole
+ * input is decoded sequentially instead. A stream without its end-of-stream
+ * marker is rejected.
+ */
+final class ParallelBZip2 {
+
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long EOS_MAGIC = 0x177245385090L;
+    private static final long MAGIC_MASK = 0xffffffffffffL;
+    private static final int HEADER_BITS = 32;
+    private static final int MAGIC_BITS = 48;
+    private static final int EOS_BITS = MAGIC_BITS + 32;
+
+    private static final int BASE_BLOCK_SIZE = 100000;
+    // BZip2CompressorOutputStream starts a new block past this many RLE bytes
+    private static final int BLOCK_SLACK = 20;
+    private static final int MAX_RUN = 255;
+
+    private ParallelBZip2() {
+    }
+
+    static byte[] compress(byte[] src, final int blockSize, ForkJoinPool pool)
+            throws IOException {
+        // as BZip2CompressorOutputStream; anything else overflows capacity
+        if (blockSize < 1 || blockSize > 9) {
+            throw new IllegalArgumentException("blockSize(" + blockSize
+                    + ") should be between 1 and 9");
+        }
+        if (src.length == 0) {
+            return compressStream(src, 0, 0, blockSize);
+        }
+        int capacity = blockSize * BASE_BLOCK_SIZE - BLOCK_SLACK;
+        List<Future<byte[]>> parts = new ArrayList<Future<byte[]>>();
+        for (int start = 0; start < src.length;) {
+            final byte[] in = src;
+            final int off = start;
+            final int end = blockEnd(src, start, capacity);
+            parts.add(pool.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException {
+                    return compressStream(in, off, end - off, blockSize);
+                }
+            }));
+            start = end;
+        }
+
+        BitWriter out = new BitWriter(src.length / 4);
+        out.writeBits(0x425a68 << 8 | ('0' + blockSize), 32);
+        int combined = 0;
+        for (Future<byte[]> part : parts) {
+            byte[] stream = get(part);
+            long eos = findEndOfStream(stream);
+            int crc = (int) readBits(stream, eos + MAGIC_BITS, 32);
+            out.copyBits(stream, HEADER_BITS, eos);
+            combined = (combined << 1 | combined >>> 31) ^ crc;
+        }
+        out.writeBits(EOS_MAGIC >>> 24, 24);
+        out.writeBits(EOS_MAGIC & 0xffffff, 24);
+        out.writeBits(combined & 0xffffffffL, 32);
+        return out.toByteArray();
+    }
+
+    static byte[] decompress(final byte[] data, ForkJoinPool pool)
+            throws IOException {
+        if (data.length < 4 || data[0] != 'B' || data[1] != 'Z'
+                || data[2] != 'h') {
+            throw new IOException("Not a bzip2 stream");
+        }
+        final byte level = data[3];
+        List<Future<byte[]>> parts = new ArrayList<Future<byte[]>>();
+        long bits = (long) data.length * 8;
+        long window = 0;
+        long start = -1;
+        // block CRCs combined the way the end-of-stream CRC is, per stream
+        int combined = 0;
+        boolean mismatch = false;
+        for (int i = 0; i < data.length; i++) {
+            window = window << 8 | (data[i] & 0xff);
+            // the 8 candidate positions ending inside this byte, in order
+            for (int k = 7; k >= 0; k--) {
+                long magic = window >>> k & MAGIC_MASK;
+                if (magic != BLOCK_MAGIC && magic != EOS_MAGIC) {
+                    continue;
+                }
+                long pos = (long) i * 8 + 8 - k - MAGIC_BITS;
+                if (start >= 0) {
+                    final long from = start;
+                    final long to = pos;
+                    parts.add(pool.submit(new Callable<byte[]>() {
+                        @Override
+                        public byte[] call() throws IOException {
+                            return decompressBlock(data, level, from, to);
+                        }
+                    }));
+                    int crc = (int) readBits(data, start + MAGIC_BITS, 32);
+                    combined = (combined << 1 | combined >>> 31) ^ crc;
+                }
+                if (magic == EOS_MAGIC) {
+                    // a false positive in the scan also ends up here; a cut
+                    // off CRC is left for the sequential decoder to report
+                    mismatch |= pos + EOS_BITS > bits
+                            || (int) readBits(data, pos + MAGIC_BITS, 32)
+                                != combined;
+                    combined = 0;
+                }
+                start = magic == BLOCK_MAGIC ? pos : -1;
+            }
+        }
+        if (start >= 0) {
+            cancel(parts);
+            throw new EOFException("bzip2 end-of-stream marker not found");
+        }
+        if (mismatch) {
+            cancel(parts);
+            return decompressStream(data);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                outputCapacity(data.length));
+        try {
+            for (Future<byte[]> part : parts) {
+                out.write(get(part));
+            }
+        } catch (IOException e) {
+            cancel(parts);
+            return decompressStream(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static void cancel(List<Future<byte[]>> parts) {
+        for (Future<byte[]> part : parts) {
+            part.cancel(false);
+        }
+    }
+
+    /**
+     * Initial buffer for the output of {@code compressed} bytes, clamped so
+     * that large inputs do not overflow.
+     */
+    private static int outputCapacity(int compressed) {
+        return (int) Math.min(compressed * 4L, Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * Largest end such that src[start, end) run-length encodes to at most
+     * {@code capacity} bytes the way the commons compressor does it.
+     */
+    private static int blockEnd(byte[] src, int start, int capacity) {
+        int p = start;
+        int encoded = 0;
+        while (p < src.length) {
+            byte b = src[p];
+            int run = 1;
+            while (run < MAX_RUN && p + run < src.length && src[p + run] == b) {
+                run++;
+            }
+            int n = run < 4 ? run : 5;
+            if (encoded + n > capacity) {
+                break;
+            }
+            encoded += n;
+            p += run;
+        }
+        return p;
+    }
+
+    private static byte[] compressStream(byte[] src, int off, int len,
+            int blockSize) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream(len / 4 + 64);
+        OutputStream out = new BZip2CompressorOutputStream(bout, blockSize);
+        try {
+            out.write(src, off, len);
+        } finally {
+            out.close();
+        }
+        return bout.toByteArray();
+    }
+
+    private static byte[] decompressBlock(byte[] data, byte level, long from,
+            long to) throws IOException {
+        BitWriter stream = new BitWriter((int) ((to - from) / 8) + 16);
+        stream.writeBits(0x425a68 << 8 | (level & 0xff), 32);
+        stream.copyBits(data, from, to);
+        stream.writeBits(EOS_MAGIC >>> 24, 24);
+        stream.writeBits(EOS_MAGIC & 0xffffff, 24);
+        // a single-block stream's combined CRC is the block CRC
+        stream.writeBits(readBits(data, from + MAGIC_BITS, 32), 32);
+        return decompressStream(stream.toByteArray());
+    }
+
+    private static byte[] decompressStream(byte[] data) throws IOException {
+        InputStream in = new BZip2CompressorInputStream(
+                new ByteArrayInputStream(data), true);
+        ByteArrayOutputStream os = new ByteArrayOutputStream(
+                outputCapacity(data.length));
+        try {
+            byte[] dest = new byte[65536];
+            int count;
+            while ((count = in.read(dest)) != -1) {
+                os.write(dest, 0, count);
+            }
+        } finally {
+            in.close();
+        }
+        return os.toByteArray();
+    }
+
+    /**
+     * Bit offset of the end-of-stream marker, which is followed only by the
+     * stream CRC and up to 7 bits of zero padding.
+     */
+    private static long findEndOfStream(byte[] stream) throws IOException {
+        long bits = (long) stream.length * 8;
+        for (int pad = 0; pad < 8; pad++) {
+            long eos = bits - pad - EOS_BITS;
+            if (eos >= HEADER_BITS
+                    && readBits(stream, eos, MAGIC_BITS) == EOS_MAGIC) {
+                return eos;
+            }
+        }
+        throw new IOException("bzip2 end-of-stream marker not found");
+    }
+
+    private static long readBits(byte[] b, long bit, int n) {
+        long v = 0;
+        for (int i = 0; i < n; i++, bit++) {
+            v = v << 1 | (b[(int) (bit >>> 3)] >>> (7 - (bit & 7)) & 1);
+        }
+        return v;
+    }
+
+    private static byte[] get(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e
+                    .getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * MSB-first bit sink, the bit order bzip2 uses.
+     */
+    static final class BitWriter {
+        private byte[] buf;
+        private int pos;
+        private long acc;
+        private int count;
+
+        BitWriter(int capacity) {
+            buf = new byte[Math.max(capacity, 16)];
+        }
+
+        void writeBits(long v, int n) {
+            acc = acc << n | (v & ((1L << n) - 1));
+            count += n;
+            while (count >= 8) {
+                count -= 8;
+                if (pos == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+                buf[pos++] = (byte) (acc >>> count);
+            }
+        }
+
+        void copyBits(byte[] src, long from, long to) {
+            long bit = from;
+            // align the source so the bulk is copied a byte at a time
+            while ((bit & 7) != 0 && bit < to) {
+                writeBits(src[(int) (bit >>> 3)] >>> (7 - (bit & 7)) & 1, 1);
+                bit++;
+            }
+            for (; bit + 8 <= to; bit += 8) {
+                writeBits(src[(int) (bit >>> 3)] & 0xff, 8);
+            }
+            if (bit < to) {
+                int n = (int) (to - bit);
+                writeBits((src[(int) (bit >>> 3)] & 0xff) >>> (8 - n), n);
+            }
+        }
+
+        byte[] toByteArray() {
+            if (count > 0) {
+                writeBits(0, 8 - count);
+            }
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+}
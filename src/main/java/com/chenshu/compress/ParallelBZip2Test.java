@@ -0,0 +1,118 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@link ParallelBZip2} against the sequential commons bzip2 streams.
+ * {@code threads} is the fork/join parallelism; it lives in {@link Parallel}
+ * so that the commons baselines do not rerun for every thread count.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParallelBZip2Test {
+
+    private byte[] src;
+    private byte[] data;
+    private StreamFactory commons;
+
+    @Param({ "1", "9" })
+    protected int blockSize;
+
+    @Param({ "LICENSE", "JSON" })
+    protected String corpus;
+
+    @Param({ "8388608" })
+    protected int size;
+
+    @State(Scope.Thread)
+    public static class Parallel {
+        ForkJoinPool pool;
+
+        @Param({ "1", "2", "4", "8" })
+        protected int threads;
+
+        @Setup
+        public void prepare(ParallelBZip2Test test) throws IOException {
+            pool = new ForkJoinPool(threads);
+            check(test.src, ParallelBZip2.decompress(test.data, pool));
+        }
+
+        @TearDown
+        public void shutdown() {
+            pool.shutdown();
+        }
+    }
+
+    @Setup
+    public void prepare() throws IOException {
+        src = Corpus.load(corpus, size);
+        commons = new CompressSizeTest.CommonsBZip2Compress(blockSize);
+        // the parallel writer's output, which both readers decode
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            data = ParallelBZip2.compress(src, blockSize, pool);
+        } finally {
+            pool.shutdown();
+        }
+        check(src, CompressUtils.decompress(commons, data, size));
+    }
+
+    static void check(byte[] expected, byte[] actual) {
+        if (!Arrays.equals(expected, actual)) {
+            throw new IllegalStateException(
+                    "bzip2 round trip does not match the input");
+        }
+    }
+
+    @Benchmark
+    public int parallelBZip2Compress(Parallel parallel) throws IOException {
+        return ParallelBZip2.compress(src, blockSize, parallel.pool).length;
+    }
+
+    @Benchmark
+    public int parallelBZip2Decompress(Parallel parallel) throws IOException {
+        return ParallelBZip2.decompress(data, parallel.pool).length;
+    }
+
+    @Benchmark
+    public int commonsBZip2Compress() throws IOException {
+        return CompressUtils.compress(commons, src).length;
+    }
+
+    @Benchmark
+    public int commonsBZip2Decompress() throws IOException {
+        return CompressUtils.decompress(commons, data, size).length;
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar ParallelBZip2Test -wi 3 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ParallelBZip2Test.class.getSimpleName())
+                .warmupIterations(3).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link StreamFactory} for {@link ParallelGzipOutputStream}. Its output is a
+ * plain single-member gzip file, so reading goes through GZIPInputStream.
+ */
+class ParallelGzipCompress implements StreamFactory {
+
+    private final ForkJoinPool pool;
+    private final DeflaterPool deflaters;
+    private final int blockSize;
+    private final boolean dictionary;
+
+    public ParallelGzipCompress(ForkJoinPool pool, int level, int blockSize,
+            boolean dictionary) {
+        this.pool = pool;
+        this.deflaters = new DeflaterPool(ZlibPool.Mode.THREAD_LOCAL, 0,
+                level, true);
+        this.blockSize = blockSize;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public InputStream getInputStream(InputStream in) throws IOException {
+        return new GZIPInputStream(in);
+    }
+
+    @Override
+    public OutputStream getOutputStream(OutputStream out) throws IOException {
+        return new ParallelGzipOutputStream(out, pool, deflaters, blockSize,
+                dictionary);
+    }
+}
@@ -0,0 +1,183 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * pigz-style gzip writer. Input is cut into fixed-size blocks which are
+ * deflated concurrently on a {@link ForkJoinPool}; every block but the last
+ * ends with a SYNC_FLUSH so the pieces concatenate into one ordinary deflate
+ * stream, and the per-block CRCs are combined for the single gzip trailer.
+ * With {@code dictionary} set each block is primed with the previous block's
+ * last 32 KB, which recovers most of the ratio lost at block boundaries.
+ */
+class ParallelGzipOutputStream extends OutputStream {
+
+    static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private final OutputStream out;
+    private final ForkJoinPool pool;
+    private final DeflaterPool deflaters;
+    private final int blockSize;
+    private final boolean dictionary;
+    private final int maxInFlight;
+    private final ArrayDeque<Future<Block>> inFlight = new ArrayDeque<Future<Block>>();
+
+    private byte[] buf;
+    private int count;
+    private byte[] previous;
+    private int crc;
+    private long length;
+    private boolean closed;
+
+    /**
+     * @param deflaters
+     *            raw (nowrap) deflaters, best a THREAD_LOCAL pool shared by
+     *            all streams on the same {@code pool}
+     */
+    public ParallelGzipOutputStream(OutputStream out, ForkJoinPool pool,
+            DeflaterPool deflaters, int blockSize, boolean dictionary)
+            throws IOException {
+        this.out = out;
+        this.pool = pool;
+        this.deflaters = deflaters;
+        this.blockSize = blockSize;
+        this.dictionary = dictionary;
+        this.maxInFlight = 2 * pool.getParallelism();
+        this.buf = new byte[blockSize];
+        GzipFormat.writeHeader(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (len > 0) {
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, buf, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == blockSize) {
+                submit(false);
+            }
+        }
+    }
+
+    private void submit(boolean last) throws IOException {
+        final Block block = new Block(buf, count, dictionary ? previous
+                : null, last);
+        inFlight.add(pool.submit(new Callable<Block>() {
+            @Override
+            public Block call() {
+                return block.deflate(deflaters);
+            }
+        }));
+        previous = buf;
+        buf = last ? null : new byte[blockSize];
+        count = 0;
+        while (inFlight.size() > (last ? 0 : maxInFlight)) {
+            writeBlock(inFlight.poll());
+        }
+    }
+
+    private void writeBlock(Future<Block> future) throws IOException {
+        Block block;
+        try {
+            block = future.get();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        out.write(block.out, 0, block.outLength);
+        crc = GzipFormat.crc32Combine(crc, block.crc, block.length);
+        length += block.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submit(true);
+            GzipFormat.writeTrailer(out, crc, (int) length);
+        } finally {
+            for (Future<Block> f : inFlight) {
+                f.cancel(false);
+            }
+            out.close();
+        }
+    }
+
+    static final class Block {
+        final byte[] in;
+        final int length;
+        final byte[] dict;
+        final boolean last;
+        byte[] out;
+        int outLength;
+        int crc;
+
+        Block(byte[] in, int length, byte[] dict, boolean last) {
+            this.in = in;
+            this.length = length;
+            this.dict = dict;
+            this.last = last;
+        }
+
+        Block deflate(DeflaterPool deflaters) {
+            CRC32 c = new CRC32();
+            c.update(in, 0, length);
+            crc = (int) c.getValue();
+            out = new byte[DeflateBlockCodec.deflateBound(length)];
+            Deflater def = deflaters.acquire();
+            try {
+                if (dict != null) {
+                    int n = Math.min(DICTIONARY_SIZE, dict.length);
+                    def.setDictionary(dict, dict.length - n, n);
+                }
+                def.setInput(in, 0, length);
+                if (last) {
+                    def.finish();
+                    while (!def.finished()) {
+                        drain(def, Deflater.NO_FLUSH);
+                    }
+                } else {
+                    // a flush is complete once deflate leaves room to spare
+                    while (drain(def, Deflater.SYNC_FLUSH)) {
+                    }
+                }
+            } finally {
+                deflaters.release(def);
+            }
+            return this;
+        }
+
+        private boolean drain(Deflater def, int flush) {
+            if (outLength == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            outLength += def.deflate(out, outLength, out.length - outLength,
+                    flush);
+            return outLength == out.length;
+        }
+    }
+}
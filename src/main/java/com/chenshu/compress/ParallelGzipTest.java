@@ -0,0 +1,109 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@link ParallelGzipOutputStream} against the single-threaded JDK and
+ * commons gzip writers on the same input. {@code threads} is the fork/join
+ * parallelism, not the number of JMH threads. The parallel stream's own
+ * parameters live in {@link Parallel}, so the baselines run once per level
+ * and corpus rather than once per combination of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParallelGzipTest {
+
+    private byte[] src;
+    private StreamFactory jdk;
+    private StreamFactory commons;
+
+    @Param({ "1", "6" })
+    protected int level;
+
+    @Param({ "LICENSE", "JSON" })
+    protected String corpus;
+
+    @Param({ "16777216" })
+    protected int size;
+
+    @State(Scope.Thread)
+    public static class Parallel {
+        ForkJoinPool pool;
+        StreamFactory factory;
+
+        @Param({ "1", "2", "4", "8" })
+        protected int threads;
+
+        @Param({ "131072", "1048576" })
+        protected int blockSize;
+
+        @Param({ "true", "false" })
+        protected boolean dictionary;
+
+        @Setup
+        public void prepare(ParallelGzipTest test) throws IOException {
+            pool = new ForkJoinPool(threads);
+            factory = new ParallelGzipCompress(pool, test.level, blockSize,
+                    dictionary);
+            CompressUtils.roundTrip(factory, test.src);
+        }
+
+        @TearDown
+        public void shutdown() {
+            pool.shutdown();
+        }
+    }
+
+    @Setup
+    public void prepare() throws IOException {
+        src = Corpus.load(corpus, size);
+        jdk = new CompressSizeTest.JdkGzipCompress(level);
+        commons = new CompressSizeTest.CommonsGzipCompress(level);
+    }
+
+    @Benchmark
+    public int parallelGzipCompress(Parallel parallel) throws IOException {
+        return CompressUtils.compress(parallel.factory, src).length;
+    }
+
+    @Benchmark
+    public int jdkGzipCompress() throws IOException {
+        return CompressUtils.compress(jdk, src).length;
+    }
+
+    @Benchmark
+    public int commonsGzipCompress() throws IOException {
+        return CompressUtils.compress(commons, src).length;
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar ParallelGzipTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ParallelGzipTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
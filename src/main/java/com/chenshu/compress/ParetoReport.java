@@ -0,0 +1,502 @@
+package com.chenshu.compress;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Speed-versus-ratio Pareto frontier over the {@link CompressTest} and
+ * {@link NoLevelCompressTest} matrix. Benchmarks are paired by name
+ * ({@code xxxCompress} / {@code xxxDecompress}) and parameters, then, per
+ * corpus and size, every configuration that is not beaten on compress MB/s,
+ * decompress MB/s and ratio at once is marked as Pareto-optimal. Throughput
+ * and ratio come from {@link ThroughputCounters}.
+ * 
+ * <pre>
+ * java -cp target/benchmarks.jar com.chenshu.compress.ParetoReport \
+ *     [-i results.json] [-o report.csv|report.html]
+ *     [--max-ratio 0.3] [--min-mbps 100]
+ * </pre>
+ * 
+ * Without {@code -i} both are run first and their JSON result kept in
+ * {@code target/compress-results.json}. {@code --max-ratio} picks the
+ * fastest compressor reaching that ratio, {@code --min-mbps} the best ratio at
+ * that compress speed, for every corpus and size.
+ */
+public class ParetoReport {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final double MB = 1000 * 1000;
+
+    static final class Config {
+        final String corpus;
+        final String size;
+        final String codec;
+        final String params;
+        double compressMBps = Double.NaN;
+        double decompressMBps = Double.NaN;
+        double ratio = Double.NaN;
+        boolean pareto;
+
+        Config(String corpus, String size, String codec, String params) {
+            this.corpus = corpus;
+            this.size = size;
+            this.codec = codec;
+            this.params = params;
+        }
+
+        String group() {
+            return corpus + " " + size;
+        }
+
+        double compressSpeed() {
+            return Double.isNaN(compressMBps) ? 0 : compressMBps;
+        }
+
+        double decompressSpeed() {
+            return Double.isNaN(decompressMBps) ? 0 : decompressMBps;
+        }
+
+        double ratioOrWorst() {
+            return Double.isNaN(ratio) ? Double.MAX_VALUE : ratio;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String input = null;
+        String output = "target/pareto.csv";
+        double maxRatio = Double.NaN;
+        double minMBps = Double.NaN;
+        for (int i = 0; i < args.length; i++) {
+            if ("-i".equals(args[i])) {
+                input = args[++i];
+            } else if ("-o".equals(args[i])) {
+                output = args[++i];
+            } else if ("--max-ratio".equals(args[i])) {
+                maxRatio = Double.parseDouble(args[++i]);
+            } else if ("--min-mbps".equals(args[i])) {
+                minMBps = Double.parseDouble(args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown option: "
+                        + args[i]);
+            }
+        }
+        if (input == null) {
+            input = "target/compress-results.json";
+            Options opt = new OptionsBuilder()
+                    .include("\\.(" + CompressTest.class.getSimpleName() + "|"
+                            + NoLevelCompressTest.class.getSimpleName()
+                            + ")\\.")
+                    .warmupIterations(5).measurementIterations(5).forks(1)
+                    .resultFormat(ResultFormatType.JSON).result(input).build();
+            new Runner(opt).run();
+        }
+
+        List<Config> configs = read(new File(input));
+        Map<String, List<Config>> groups = new LinkedHashMap<String, List<Config>>();
+        for (Config c : configs) {
+            List<Config> group = groups.get(c.group());
+            if (group == null) {
+                group = new ArrayList<Config>();
+                groups.put(c.group(), group);
+            }
+            group.add(c);
+        }
+        for (Map.Entry<String, List<Config>> e : groups.entrySet()) {
+            markPareto(e.getValue());
+            if (!Double.isNaN(maxRatio)) {
+                print(e.getKey(), "fastest with ratio <= " + maxRatio,
+                        fastestWithin(e.getValue(), maxRatio));
+            }
+            if (!Double.isNaN(minMBps)) {
+                print(e.getKey(), "smallest at >= " + minMBps + " MB/s",
+                        smallestAtSpeed(e.getValue(), minMBps));
+            }
+        }
+
+        if (output.endsWith(".html")) {
+            writeHtml(configs, output);
+        } else {
+            writeCsv(configs, output);
+        }
+        System.out.println("Wrote " + configs.size() + " configurations to "
+                + output);
+    }
+
+    static List<Config> read(File json) throws IOException {
+        String text = new String(Files.readAllBytes(json.toPath()), UTF_8);
+        Map<String, Config> configs = new LinkedHashMap<String, Config>();
+        for (Object o : (List<?>) new Json(text).parse()) {
+            Map<?, ?> result = (Map<?, ?>) o;
+            String benchmark = (String) result.get("benchmark");
+            String method = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+            boolean decompress = method.endsWith("Decompress");
+            String codec;
+            if (decompress) {
+                codec = method.substring(0, method.length()
+                        - "Decompress".length());
+            } else if (method.endsWith("Compress")) {
+                codec = method.substring(0, method.length()
+                        - "Compress".length());
+            } else {
+                continue;
+            }
+
+            Map<?, ?> params = (Map<?, ?>) result.get("params");
+            String corpus = "";
+            String size = "";
+            StringBuilder rest = new StringBuilder();
+            if (params != null) {
+                for (Map.Entry<?, ?> p : params.entrySet()) {
+                    if ("corpus".equals(p.getKey())) {
+                        corpus = (String) p.getValue();
+                    } else if ("size".equals(p.getKey())) {
+                        size = (String) p.getValue();
+                    } else {
+                        if (rest.length() > 0) {
+                            rest.append(' ');
+                        }
+                        rest.append(p.getKey()).append('=').append(p.getValue());
+                    }
+                }
+            }
+            String key = corpus + "|" + size + "|" + codec + "|" + rest;
+            Config c = configs.get(key);
+            if (c == null) {
+                c = new Config(corpus, size, codec, rest.toString());
+                configs.put(key, c);
+            }
+
+            double uncompressed = secondaryScore(result, "uncompressedBytes");
+            double compressed = secondaryScore(result, "compressedBytes");
+            double mbps = uncompressed / MB;
+            if (Double.isNaN(mbps) && "thrpt".equals(result.get("mode"))
+                    && size.length() > 0) {
+                // no byte counters: fall back to ops/s times payload size
+                Map<?, ?> primary = (Map<?, ?>) result.get("primaryMetric");
+                mbps = number(primary.get("score")) * Long.parseLong(size) / MB;
+            }
+            if (decompress) {
+                c.decompressMBps = mbps;
+            } else {
+                c.compressMBps = mbps;
+            }
+            if (Double.isNaN(c.ratio) && uncompressed > 0) {
+                c.ratio = compressed / uncompressed;
+            }
+        }
+        return new ArrayList<Config>(configs.values());
+    }
+
+    private static double secondaryScore(Map<?, ?> result, String name) {
+        Map<?, ?> secondary = (Map<?, ?>) result.get("secondaryMetrics");
+        if (secondary == null || secondary.get(name) == null) {
+            return Double.NaN;
+        }
+        return number(((Map<?, ?>) secondary.get(name)).get("score"));
+    }
+
+    private static double number(Object o) {
+        if (o instanceof Number) {
+            return ((Number) o).doubleValue();
+        }
+        return o == null ? Double.NaN : Double.parseDouble(o.toString());
+    }
+
+    static void markPareto(List<Config> group) {
+        for (Config c : group) {
+            c.pareto = true;
+            for (Config other : group) {
+                if (dominates(other, c)) {
+                    c.pareto = false;
+                    break;
+                }
+            }
+        }
+    }
+
+    static boolean dominates(Config a, Config b) {
+        boolean noWorse = a.compressSpeed() >= b.compressSpeed()
+                && a.decompressSpeed() >= b.decompressSpeed()
+                && a.ratioOrWorst() <= b.ratioOrWorst();
+        boolean better = a.compressSpeed() > b.compressSpeed()
+                || a.decompressSpeed() > b.decompressSpeed()
+                || a.ratioOrWorst() < b.ratioOrWorst();
+        return noWorse && better;
+    }
+
+    static Config fastestWithin(List<Config> group, double maxRatio) {
+        Config best = null;
+        for (Config c : group) {
+            if (c.pareto && c.ratioOrWorst() <= maxRatio
+                    && (best == null || c.compressSpeed() > best.compressSpeed())) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    static Config smallestAtSpeed(List<Config> group, double minMBps) {
+        Config best = null;
+        for (Config c : group) {
+            if (c.pareto && c.compressSpeed() >= minMBps
+                    && (best == null || c.ratioOrWorst() < best.ratioOrWorst())) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private static void print(String group, String what, Config c) {
+        System.out.println(group + ": " + what + ": "
+                + (c == null ? "none" : c.codec + " " + c.params + " ("
+                        + format(c.compressMBps) + " MB/s, ratio "
+                        + format(c.ratio) + ")"));
+    }
+
+    private static void writeCsv(List<Config> configs, String output)
+            throws IOException {
+        PrintWriter out = new PrintWriter(Files.newBufferedWriter(
+                Paths.get(output), UTF_8));
+        try {
+            out.println("corpus,size,codec,params,"
+                    + "compress_mbps,decompress_mbps,ratio,pareto");
+            for (Config c : configs) {
+                out.println(c.corpus + "," + c.size + "," + c.codec + ","
+                        + c.params + "," + format(c.compressMBps) + ","
+                        + format(c.decompressMBps) + "," + format(c.ratio)
+                        + "," + c.pareto);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeHtml(List<Config> configs, String output)
+            throws IOException {
+        PrintWriter out = new PrintWriter(Files.newBufferedWriter(
+                Paths.get(output), UTF_8));
+        try {
+            out.println("<!DOCTYPE html>");
+            out.println("<html><head><meta charset=\"utf-8\">"
+                    + "<title>Compression Pareto frontier</title>");
+            out.println("<style>td,th{padding:2px 8px;text-align:right}"
+                    + " tr.pareto{background:#dfd;font-weight:bold}</style>");
+            out.println("</head><body><table>");
+            out.println("<tr><th>corpus</th><th>size</th><th>codec</th>"
+                    + "<th>params</th><th>compress MB/s</th>"
+                    + "<th>decompress MB/s</th><th>ratio</th></tr>");
+            for (Config c : configs) {
+                out.println("<tr" + (c.pareto ? " class=\"pareto\"" : "")
+                        + "><td>" + c.corpus + "</td><td>" + c.size
+                        + "</td><td>" + c.codec + "</td><td>" + c.params
+                        + "</td><td>" + format(c.compressMBps) + "</td><td>"
+                        + format(c.decompressMBps) + "</td><td>"
+                        + format(c.ratio) + "</td></tr>");
+            }
+            out.println("</table></body></html>");
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String format(double v) {
+        return Double.isNaN(v) ? "" : String.format(Locale.ROOT, "%.4f", v);
+    }
+
+    /**
+     * Just enough JSON to read JMH result files: objects become maps,
+     * arrays lists, numbers doubles.
+     */
+    static final class Json {
+        private final String s;
+        private int pos;
+
+        Json(String s) {
+            this.s = s;
+        }
+
+        Object parse() {
+            Object v = value();
+            skipWhitespace();
+            if (pos != s.length()) {
+                throw error("trailing characters");
+            }
+            return v;
+        }
+
+        private Object value() {
+            skipWhitespace();
+            if (pos >= s.length()) {
+                throw error("unexpected end");
+            }
+            char c = s.charAt(pos);
+            switch (c) {
+            case '{':
+                return object();
+            case '[':
+                return array();
+            case '"':
+                return string();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                return number();
+            }
+        }
+
+        private Map<String, Object> object() {
+            Map<String, Object> map = new LinkedHashMap<String, Object>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return map;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                map.put(key, value());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return map;
+                }
+            }
+        }
+
+        private List<Object> array() {
+            List<Object> list = new ArrayList<Object>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return list;
+            }
+            while (true) {
+                list.add(value());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return list;
+                }
+            }
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                c = next();
+                switch (c) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > s.length()) {
+                        throw error("bad escape");
+                    }
+                    sb.append((char) Integer.parseInt(
+                            s.substring(pos, pos + 4), 16));
+                    pos += 4;
+                    break;
+                default:
+                    sb.append(c);
+                }
+            }
+        }
+
+        private Double number() {
+            int start = pos;
+            while (pos < s.length()
+                    && "+-0123456789.eE".indexOf(s.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("unexpected character");
+            }
+            return Double.valueOf(s.substring(start, pos));
+        }
+
+        private Object literal(String word, Object value) {
+            if (!s.startsWith(word, pos)) {
+                throw error("unexpected token");
+            }
+            pos += word.length();
+            return value;
+        }
+
+        private void skipWhitespace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() {
+            if (pos >= s.length()) {
+                throw error("unexpected end");
+            }
+            return s.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char c) {
+            if (next() != c) {
+                throw error("expected '" + c + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("JSON " + message + " at "
+                    + pos);
+        }
+    }
+}
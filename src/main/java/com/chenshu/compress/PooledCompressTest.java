@@ -0,0 +1,90 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * New-per-call versus thread-local versus shared-pool zlib contexts. The
+ * factory is shared by all benchmark threads so the SHARED pool actually sees
+ * contention; run with several thread counts (see {@link #main(String[])}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PooledCompressTest {
+
+    private byte[] src;
+    private byte[] data;
+    private StreamFactory factory;
+
+    @Param({ "NEW", "THREAD_LOCAL", "SHARED" })
+    protected String mode;
+
+    @Param({ "1", "6" })
+    protected int level;
+
+    @Param({ "LICENSE", "JSON" })
+    protected String corpus;
+
+    @Param({ "256", "4096", "65536" })
+    protected int size;
+
+    // only used by SHARED; extra threads fall back to fresh contexts
+    @Param({ "16" })
+    protected int capacity;
+
+    @Setup
+    public void prepare() throws IOException {
+        src = Corpus.load(corpus, size);
+        factory = new PooledGzipCompress(ZlibPool.Mode.valueOf(mode),
+                capacity, level);
+        data = CompressUtils.roundTrip(factory, src);
+        // the second trip runs on the contexts the first one released
+        if (!Arrays.equals(data, CompressUtils.roundTrip(factory, src))) {
+            throw new IllegalStateException(mode
+                    + " pool: reused Deflater gave different output");
+        }
+    }
+
+    @Benchmark
+    public int compress() throws IOException {
+        return CompressUtils.compress(factory, src).length;
+    }
+
+    @Benchmark
+    public int decompress() throws IOException {
+        return CompressUtils.decompress(factory, data, src.length).length;
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar PooledCompressTest -wi 5 -i 5 -f 1 -t 4
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cpus; threads *= 2) {
+            Options opt = new OptionsBuilder()
+                    .include(PooledCompressTest.class.getSimpleName())
+                    .threads(threads).warmupIterations(5)
+                    .measurementIterations(5).forks(1).build();
+
+            new Runner(opt).run();
+        }
+    }
+
+}
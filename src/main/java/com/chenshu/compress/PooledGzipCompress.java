@@ -0,0 +1,150 @@
+package com.chenshu.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Gzip {@link StreamFactory} whose streams borrow their {@link Deflater} /
+ * {@link Inflater} from a {@link ZlibPool} and give it back on close, instead
+ * of allocating (and later freeing) a native zlib context per stream.
+ */
+class PooledGzipCompress implements StreamFactory {
+
+    private final DeflaterPool deflaters;
+    private final InflaterPool inflaters;
+
+    public PooledGzipCompress(ZlibPool.Mode mode, int capacity, int level) {
+        this.deflaters = new DeflaterPool(mode, capacity, level, true);
+        this.inflaters = new InflaterPool(mode, capacity, true);
+    }
+
+    @Override
+    public InputStream getInputStream(InputStream in) throws IOException {
+        return new PooledGzipInputStream(in, inflaters);
+    }
+
+    @Override
+    public OutputStream getOutputStream(OutputStream out) throws IOException {
+        return new PooledGzipOutputStream(out, deflaters);
+    }
+
+    static class PooledGzipOutputStream extends DeflaterOutputStream {
+        private final DeflaterPool pool;
+        private final CRC32 crc = new CRC32();
+        private boolean closed;
+
+        PooledGzipOutputStream(OutputStream out, DeflaterPool pool)
+                throws IOException {
+            super(out, pool.acquire());
+            this.pool = pool;
+            try {
+                GzipFormat.writeHeader(out);
+            } catch (IOException e) {
+                pool.release(def);
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+                throws IOException {
+            super.write(b, off, len);
+            crc.update(b, off, len);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!def.finished()) {
+                super.finish();
+                GzipFormat.writeTrailer(out, (int) crc.getValue(),
+                        (int) def.getBytesRead());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                pool.release(def);
+            }
+        }
+    }
+
+    static class PooledGzipInputStream extends InflaterInputStream {
+        private final InflaterPool pool;
+        private final CRC32 crc = new CRC32();
+        private boolean eos;
+        private boolean closed;
+
+        PooledGzipInputStream(InputStream in, InflaterPool pool)
+                throws IOException {
+            super(in, pool.acquire());
+            this.pool = pool;
+            try {
+                GzipFormat.readHeader(in);
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (eos) {
+                return -1;
+            }
+            int n = super.read(b, off, len);
+            if (n == -1) {
+                eos = true;
+                readTrailer();
+            } else {
+                crc.update(b, off, n);
+            }
+            return n;
+        }
+
+        private void readTrailer() throws IOException {
+            byte[] t = new byte[GzipFormat.TRAILER_SIZE];
+            int buffered = Math.min(inf.getRemaining(), t.length);
+            System.arraycopy(buf, this.len - inf.getRemaining(), t, 0,
+                    buffered);
+            for (int p = buffered; p < t.length;) {
+                int n = in.read(t, p, t.length - p);
+                if (n == -1) {
+                    throw new EOFException("Unexpected end of GZIP trailer");
+                }
+                p += n;
+            }
+            if (GzipFormat.readInt(t, 0) != (int) crc.getValue()
+                    || GzipFormat.readInt(t, 4) != (int) inf.getBytesWritten()) {
+                throw new ZipException("Corrupt GZIP trailer");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                pool.release(inf);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.chenshu.compress;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Where gzip output goes: a scratch array copied into a
+ * {@code ByteArrayOutputStream} and out again (the old
+ * {@code CompressTest.getDecompressContent}), pooled
+ * {@link SegmentedByteSink} chunks, one array sized by the ISIZE
+ * trailer, and a caller-supplied array. The {@link AllocationProbe} line
+ * after each iteration shows what each costs in allocation per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PresizedDecompressTest {
+
+    private byte[] data;
+    private byte[] dest;
+    private StreamFactory factory;
+
+    @Param({ "JDK_GZIP", "COMMONS_GZIP" })
+    protected String codecName;
+
+    @Param({ "6" })
+    protected int level;
+
+    @Param({ "JSON" })
+    protected String corpus;
+
+    @Param({ "4096", "262144", "4194304" })
+    protected int size;
+
+    @Setup
+    public void prepare() throws IOException {
+        byte[] src = Corpus.load(corpus, size);
+        factory = CompressSizeTest.newFactory(codecName, level);
+        data = CompressUtils.compress(factory, src);
+        dest = new byte[size];
+        if (!Arrays.equals(src, CompressUtils.decompressGzip(factory, data))) {
+            throw new IllegalStateException(codecName
+                    + " presized decode does not match the input");
+        }
+    }
+
+    @Benchmark
+    public int scratchCopy(AllocationProbe probe) throws IOException {
+        probe.op();
+        InputStream in = factory.getInputStream(new ByteArrayInputStream(
+                data));
+        try {
+            byte[] scratch = new byte[size];
+            ByteArrayOutputStream os = new ByteArrayOutputStream(size);
+            int count;
+            while ((count = in.read(scratch)) != -1) {
+                os.write(scratch, 0, count);
+            }
+            return os.toByteArray().length;
+        } finally {
+            in.close();
+        }
+    }
+
+    @Benchmark
+    public int sizeHint(AllocationProbe probe) throws IOException {
+        probe.op();
+        return CompressUtils.decompress(factory, data, size).length;
+    }
+
+    @Benchmark
+    public int trailerSize(AllocationProbe probe) throws IOException {
+        probe.op();
+        return CompressUtils.decompressGzip(factory, data).length;
+    }
+
+    @Benchmark
+    public int callerBuffer(AllocationProbe probe) throws IOException {
+        probe.op();
+        return CompressUtils.decompress(factory, data, dest, 0);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar PresizedDecompressTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(PresizedDecompressTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
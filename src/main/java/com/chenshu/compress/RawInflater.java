@@ -0,0 +1,385 @@
+package com.chenshu.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.zip.ZipException;
+
+/**
+ * Pure-Java raw deflate decoder (after zlib's puff.c) for what
+ * {@link java.util.zip.Inflater} cannot do: start at an arbitrary bit offset
+ * with a preset 32 KB window, and stop at block boundaries so the caller can
+ * record its position. It is several times slower than zlib, so it is only
+ * meant for short reads from a checkpoint.
+ */
+final class RawInflater {
+
+    static final int WINDOW_SIZE = 32768;
+    private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+
+    private static final int MAX_BITS = 15;
+    private static final int FAST_BITS = 9;
+
+    private static final short[] LENGTH_BASE = { 3, 4, 5, 6, 7, 8, 9, 10, 11,
+            13, 15, 17, 19, 23, 27, 31, 35, 43, 51, 59, 67, 83, 99, 115, 131,
+            163, 195, 227, 258 };
+    private static final byte[] LENGTH_EXTRA = { 0, 0, 0, 0, 0, 0, 0, 0, 1, 1,
+            1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0 };
+    private static final short[] DIST_BASE = { 1, 2, 3, 4, 5, 7, 9, 13, 17,
+            25, 33, 49, 65, 97, 129, 193, 257, 385, 513, 769, 1025, 1537,
+            2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577 };
+    private static final byte[] DIST_EXTRA = { 0, 0, 0, 0, 1, 1, 2, 2, 3, 3,
+            4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13 };
+    private static final byte[] CODE_LENGTH_ORDER = { 16, 17, 18, 0, 8, 7, 9,
+            6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15 };
+
+    private static final Huffman FIXED_LENGTHS;
+    private static final Huffman FIXED_DISTANCES;
+    static {
+        byte[] lengths = new byte[288];
+        for (int i = 0; i < 288; i++) {
+            lengths[i] = (byte) (i < 144 ? 8 : i < 256 ? 9 : i < 280 ? 7 : 8);
+        }
+        byte[] dists = new byte[30];
+        for (int i = 0; i < 30; i++) {
+            dists[i] = 5;
+        }
+        try {
+            FIXED_LENGTHS = new Huffman(lengths, 0, 288);
+            FIXED_DISTANCES = new Huffman(dists, 0, 30);
+        } catch (ZipException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final int HEADER = 0;
+    private static final int STORED = 1;
+    private static final int CODES = 2;
+    private static final int DONE = 3;
+
+    private final byte[] in;
+    private int pos;
+    private long bitBuf;
+    private int bitCount;
+
+    private final byte[] window = new byte[WINDOW_SIZE];
+    private int windowPos;
+    private final int preset;
+    private long total;
+
+    private int mode = HEADER;
+    private boolean last;
+    private int storedLeft;
+    private Huffman lengthCode;
+    private Huffman distCode;
+    private int copyLength;
+    private int copyDistance;
+
+    /**
+     * @param bit
+     *            bit offset into {@code in} of a block header
+     * @param dictionary
+     *            output preceding that block, at most the last 32 KB is used;
+     *            may be {@code null} at the start of a stream
+     */
+    RawInflater(byte[] in, long bit, byte[] dictionary) throws IOException {
+        this.in = in;
+        this.pos = (int) (bit >>> 3);
+        int n = dictionary == null ? 0 : Math.min(dictionary.length,
+                WINDOW_SIZE);
+        if (n > 0) {
+            System.arraycopy(dictionary, dictionary.length - n, window, 0, n);
+        }
+        this.windowPos = n & WINDOW_MASK;
+        this.preset = n;
+        bits((int) (bit & 7));
+    }
+
+    /**
+     * Decodes up to {@code len} bytes, returning early at the end of each
+     * deflate block.
+     * 
+     * @return bytes decoded, or -1 once the final block has been consumed
+     */
+    int inflate(byte[] dst, int off, int len) throws IOException {
+        int n = 0;
+        while (n < len) {
+            if (copyLength > 0) {
+                int c = Math.min(copyLength, len - n);
+                copyLength -= c;
+                int from = windowPos - copyDistance;
+                while (c-- > 0) {
+                    byte b = window[from++ & WINDOW_MASK];
+                    window[windowPos] = b;
+                    windowPos = (windowPos + 1) & WINDOW_MASK;
+                    dst[off + n++] = b;
+                }
+                continue;
+            }
+            switch (mode) {
+            case HEADER:
+                readBlockHeader();
+                break;
+            case STORED:
+                if (storedLeft == 0) {
+                    mode = last ? DONE : HEADER;
+                    return n;
+                }
+                int c = Math.min(storedLeft, len - n);
+                storedLeft -= c;
+                while (c-- > 0) {
+                    byte b = (byte) (bitCount >= 8 ? bits(8) : nextByte());
+                    put(b);
+                    dst[off + n++] = b;
+                }
+                break;
+            case CODES:
+                int sym = lengthCode.decode(this);
+                if (sym < 256) {
+                    put((byte) sym);
+                    dst[off + n++] = (byte) sym;
+                } else if (sym == 256) {
+                    mode = last ? DONE : HEADER;
+                    return n;
+                } else {
+                    readMatch(sym - 257);
+                }
+                break;
+            default:
+                return n > 0 ? n : -1;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * True between two blocks, where {@link #bitPosition()} and
+     * {@link #window()} make a valid restart point.
+     */
+    boolean atBlockBoundary() {
+        return mode == HEADER && copyLength == 0;
+    }
+
+    boolean finished() {
+        return mode == DONE && copyLength == 0;
+    }
+
+    long bitPosition() {
+        return (long) pos * 8 - bitCount;
+    }
+
+    long totalOut() {
+        return total;
+    }
+
+    /**
+     * The last (up to) 32 KB of output, oldest first.
+     */
+    byte[] window() {
+        int n = (int) Math.min(WINDOW_SIZE, preset + total);
+        byte[] w = new byte[n];
+        int start = (windowPos - n) & WINDOW_MASK;
+        int first = Math.min(n, WINDOW_SIZE - start);
+        System.arraycopy(window, start, w, 0, first);
+        System.arraycopy(window, 0, w, first, n - first);
+        return w;
+    }
+
+    private void put(byte b) {
+        window[windowPos] = b;
+        windowPos = (windowPos + 1) & WINDOW_MASK;
+        total++;
+    }
+
+    private void readMatch(int symbol) throws IOException {
+        if (symbol >= 29) {
+            throw new ZipException("invalid literal/length code");
+        }
+        int length = LENGTH_BASE[symbol] + bits(LENGTH_EXTRA[symbol]);
+        int d = distCode.decode(this);
+        if (d >= 30) {
+            throw new ZipException("invalid distance code");
+        }
+        int distance = DIST_BASE[d] + bits(DIST_EXTRA[d]);
+        if (distance > preset + total) {
+            throw new ZipException("invalid distance too far back");
+        }
+        copyLength = length;
+        copyDistance = distance;
+        total += length;
+    }
+
+    private void readBlockHeader() throws IOException {
+        last = bits(1) == 1;
+        switch (bits(2)) {
+        case 0:
+            bits(bitCount & 7);
+            int len = bits(16);
+            if ((bits(16) ^ 0xffff) != len) {
+                throw new ZipException("invalid stored block lengths");
+            }
+            storedLeft = len;
+            mode = STORED;
+            break;
+        case 1:
+            lengthCode = FIXED_LENGTHS;
+            distCode = FIXED_DISTANCES;
+            mode = CODES;
+            break;
+        case 2:
+            readDynamicTables();
+            mode = CODES;
+            break;
+        default:
+            throw new ZipException("invalid block type");
+        }
+    }
+
+    private void readDynamicTables() throws IOException {
+        int nlen = bits(5) + 257;
+        int ndist = bits(5) + 1;
+        int ncode = bits(4) + 4;
+        if (nlen > 286 || ndist > 30) {
+            throw new ZipException("too many length or distance symbols");
+        }
+        byte[] lengths = new byte[19];
+        for (int i = 0; i < ncode; i++) {
+            lengths[CODE_LENGTH_ORDER[i]] = (byte) bits(3);
+        }
+        Huffman codeLengths = new Huffman(lengths, 0, 19);
+
+        lengths = new byte[nlen + ndist];
+        for (int i = 0; i < nlen + ndist;) {
+            int sym = codeLengths.decode(this);
+            if (sym < 16) {
+                lengths[i++] = (byte) sym;
+                continue;
+            }
+            byte repeat = 0;
+            int count;
+            if (sym == 16) {
+                if (i == 0) {
+                    throw new ZipException("repeat with no first length");
+                }
+                repeat = lengths[i - 1];
+                count = 3 + bits(2);
+            } else if (sym == 17) {
+                count = 3 + bits(3);
+            } else {
+                count = 11 + bits(7);
+            }
+            if (i + count > nlen + ndist) {
+                throw new ZipException("too many lengths");
+            }
+            while (count-- > 0) {
+                lengths[i++] = repeat;
+            }
+        }
+        if (lengths[256] == 0) {
+            throw new ZipException("no end-of-block code");
+        }
+        lengthCode = new Huffman(lengths, 0, nlen);
+        distCode = new Huffman(lengths, nlen, ndist);
+    }
+
+    private int nextByte() throws IOException {
+        if (pos >= in.length) {
+            throw new EOFException("Unexpected end of deflate stream");
+        }
+        return in[pos++] & 0xff;
+    }
+
+    private void fill() {
+        while (bitCount <= 56 && pos < in.length) {
+            bitBuf |= (long) (in[pos++] & 0xff) << bitCount;
+            bitCount += 8;
+        }
+    }
+
+    private int bits(int n) throws IOException {
+        if (bitCount < n) {
+            fill();
+            if (bitCount < n) {
+                throw new EOFException("Unexpected end of deflate stream");
+            }
+        }
+        int v = (int) (bitBuf & ((1L << n) - 1));
+        bitBuf >>>= n;
+        bitCount -= n;
+        return v;
+    }
+
+    /**
+     * Canonical Huffman decoder: a {@value RawInflater#FAST_BITS}-bit lookup
+     * table for short codes, puff's count/symbol walk for the rest.
+     */
+    static final class Huffman {
+        private final short[] count = new short[MAX_BITS + 1];
+        private final short[] symbol;
+        // (length << 9 | symbol), 0 for codes longer than FAST_BITS
+        private final short[] fast = new short[1 << FAST_BITS];
+
+        Huffman(byte[] lengths, int off, int n) throws ZipException {
+            symbol = new short[n];
+            for (int i = 0; i < n; i++) {
+                count[lengths[off + i]]++;
+            }
+            int left = 1;
+            for (int len = 1; len <= MAX_BITS; len++) {
+                left = (left << 1) - count[len];
+                if (left < 0) {
+                    throw new ZipException("over-subscribed Huffman code");
+                }
+            }
+            short[] offs = new short[MAX_BITS + 1];
+            for (int len = 1; len < MAX_BITS; len++) {
+                offs[len + 1] = (short) (offs[len] + count[len]);
+            }
+            for (int i = 0; i < n; i++) {
+                if (lengths[off + i] != 0) {
+                    symbol[offs[lengths[off + i]]++] = (short) i;
+                }
+            }
+            // walk the codes in canonical order to fill the fast table
+            int code = 0;
+            int index = 0;
+            for (int len = 1; len <= FAST_BITS; len++) {
+                for (int k = 0; k < count[len]; k++) {
+                    int reversed = Integer.reverse(code) >>> (32 - len);
+                    short entry = (short) (len << 9 | symbol[index]);
+                    for (int j = reversed; j < fast.length; j += 1 << len) {
+                        fast[j] = entry;
+                    }
+                    code++;
+                    index++;
+                }
+                code <<= 1;
+            }
+        }
+
+        int decode(RawInflater s) throws IOException {
+            if (s.bitCount < MAX_BITS) {
+                s.fill();
+            }
+            short entry = fast[(int) (s.bitBuf & ((1 << FAST_BITS) - 1))];
+            if (entry != 0 && (entry >> 9) <= s.bitCount) {
+                s.bitBuf >>>= entry >> 9;
+                s.bitCount -= entry >> 9;
+                return entry & 0x1ff;
+            }
+            int code = 0;
+            int first = 0;
+            int index = 0;
+            for (int len = 1; len <= MAX_BITS; len++) {
+                code |= s.bits(1);
+                int c = count[len];
+                if (code - c < first) {
+                    return symbol[index + (code - first)];
+                }
+                index += c;
+                first = (first + c) << 1;
+                code <<= 1;
+            }
+            throw new ZipException("invalid Huffman code");
+        }
+    }
+}
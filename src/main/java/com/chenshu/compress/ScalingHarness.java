@@ -0,0 +1,43 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Input and compressed data shared read-only by all threads of
+ * {@link ScalingTest} and {@link NoLevelScalingTest}.
+ */
+@State(Scope.Benchmark)
+public abstract class ScalingHarness {
+
+    protected byte[] src;
+    protected byte[] data;
+    protected StreamFactory factory;
+
+    @Param({ "JSON" })
+    protected String corpus;
+
+    @Param({ "65536", "1048576" })
+    protected int size;
+
+    protected void prepare(StreamFactory factory) throws IOException {
+        this.factory = factory;
+        src = Corpus.load(corpus, size);
+        data = CompressUtils.roundTrip(factory, src);
+    }
+
+    protected int compress(ThroughputCounters counters) throws IOException {
+        int n = CompressUtils.compress(factory, src).length;
+        counters.add(src.length, n);
+        return n;
+    }
+
+    protected int decompress(ThroughputCounters counters) throws IOException {
+        int n = CompressUtils.decompress(factory, data, size).length;
+        counters.add(n, data.length);
+        return n;
+    }
+}
@@ -0,0 +1,150 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Multi-threaded scaling of the codec suite. Input and compressed data are
+ * shared read-only by all threads ({@code Scope.Benchmark}); every call still
+ * builds its own streams, so what is measured is contention in the native
+ * allocator, memory bandwidth and caches. {@link #main(String[])} runs 1, 2,
+ * 4 ... N threads and prints aggregate and per-thread throughput with the
+ * efficiency relative to linear scaling from one thread, for this class and
+ * for bzip2 in {@link NoLevelScalingTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ScalingTest extends ScalingHarness {
+
+    @Param({ "JDK_GZIP", "COMMONS_GZIP", "COMMONS_DEFLATE" })
+    protected String codecName;
+
+    @Param({ "1", "6" })
+    protected int level;
+
+    @Setup
+    public void prepare() throws IOException {
+        prepare(CompressSizeTest.newFactory(codecName, level));
+    }
+
+    @Benchmark
+    public int compress(ThroughputCounters counters) throws IOException {
+        return super.compress(counters);
+    }
+
+    @Benchmark
+    public int decompress(ThroughputCounters counters) throws IOException {
+        return super.decompress(counters);
+    }
+
+    /**
+     * 
+     * java -cp target/benchmarks.jar com.chenshu.compress.ScalingTest
+     * 
+     * the summary is also written to target/scaling.csv
+     * 
+     */
+    public static void main(String[] args) throws RunnerException,
+            IOException {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        TreeSet<Integer> counts = new TreeSet<Integer>();
+        for (int t = 1; t < cpus; t *= 2) {
+            counts.add(t);
+        }
+        counts.add(cpus);
+
+        // configuration -> thread count -> aggregate ops/s and bytes/s
+        Map<String, Map<Integer, double[]>> scores =
+                new LinkedHashMap<String, Map<Integer, double[]>>();
+        for (int threads : counts) {
+            Options opt = new OptionsBuilder()
+                    .include("\\.(" + ScalingTest.class.getSimpleName() + "|"
+                            + NoLevelScalingTest.class.getSimpleName()
+                            + ")\\.")
+                    .threads(threads).warmupIterations(5)
+                    .measurementIterations(5).forks(1).build();
+            for (RunResult r : new Runner(opt).run()) {
+                String key = key(r);
+                Map<Integer, double[]> byThreads = scores.get(key);
+                if (byThreads == null) {
+                    byThreads = new LinkedHashMap<Integer, double[]>();
+                    scores.put(key, byThreads);
+                }
+                double bytes = r.getSecondaryResults().containsKey(
+                        "uncompressedBytes") ? r.getSecondaryResults()
+                        .get("uncompressedBytes").getScore() : Double.NaN;
+                byThreads.put(threads, new double[] {
+                        r.getPrimaryResult().getScore(), bytes });
+            }
+        }
+
+        List<String> lines = new ArrayList<String>();
+        lines.add("benchmark,threads,ops_s,ops_s_per_thread,mb_s,"
+                + "mb_s_per_thread,efficiency");
+        for (Map.Entry<String, Map<Integer, double[]>> e : scores.entrySet()) {
+            double[] single = e.getValue().get(1);
+            for (Map.Entry<Integer, double[]> t : e.getValue().entrySet()) {
+                int threads = t.getKey();
+                double ops = t.getValue()[0];
+                double mb = t.getValue()[1] / 1e6;
+                double efficiency = single == null ? Double.NaN : ops
+                        / (threads * single[0]);
+                lines.add(String.format(Locale.ROOT,
+                        "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f", e.getKey(), threads,
+                        ops, ops / threads, mb, mb / threads, efficiency));
+            }
+        }
+        PrintWriter out = new PrintWriter(Files.newBufferedWriter(
+                Paths.get("target/scaling.csv"), Charset.forName("UTF-8")));
+        try {
+            for (String line : lines) {
+                out.println(line);
+                System.out.println(line);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String key(RunResult r) {
+        String benchmark = r.getParams().getBenchmark();
+        StringBuilder key = new StringBuilder(
+                benchmark.substring(benchmark.lastIndexOf('.') + 1));
+        String[] params = { "codecName", "level", "bzip2BlockSize", "corpus",
+                "size" };
+        for (String p : params) {
+            // each class has only some of them
+            String value = r.getParams().getParam(p);
+            if (value != null) {
+                key.append(' ').append(p).append('=').append(value);
+            }
+        }
+        return key.toString();
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+
+/**
+ * Unsynchronized replacement for {@code ByteArrayOutputStream} that keeps its
+ * content in fixed-size chunks from a {@link ChunkPool}: growing never copies
+ * what was already written, and {@link #writeTo(GatheringByteChannel)} hands
+ * the chunks to the channel as they are. {@link #release()} returns the
+ * chunks to the pool; the sink must not be used after that.
+ */
+class SegmentedByteSink extends OutputStream {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    /** shared by the harness; holds up to 16 MB of idle chunks */
+    static final ChunkPool POOL = new ChunkPool(ZlibPool.Mode.SHARED, 256,
+            CHUNK_SIZE);
+
+    private final ChunkPool pool;
+    private byte[][] chunks = new byte[4][];
+    private int count;
+    // write position in the last chunk
+    private int pos;
+    private long size;
+
+    public SegmentedByteSink() {
+        this(POOL);
+    }
+
+    public SegmentedByteSink(ChunkPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void write(int b) {
+        if (count == 0 || pos == chunks[count - 1].length) {
+            addChunk();
+        }
+        chunks[count - 1][pos++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        size += len;
+        while (len > 0) {
+            if (count == 0 || pos == chunks[count - 1].length) {
+                addChunk();
+            }
+            byte[] chunk = chunks[count - 1];
+            int n = Math.min(len, chunk.length - pos);
+            System.arraycopy(b, off, chunk, pos, n);
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void addChunk() {
+        if (count == chunks.length) {
+            chunks = Arrays.copyOf(chunks, count * 2);
+        }
+        chunks[count++] = pool.acquire();
+        pos = 0;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Copies the content into one new array, for callers that need it so.
+     */
+    public byte[] toByteArray() {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too large for an array: " + size);
+        }
+        byte[] b = new byte[(int) size];
+        int off = 0;
+        for (int i = 0; i < count; i++) {
+            int n = i == count - 1 ? pos : chunks[i].length;
+            System.arraycopy(chunks[i], 0, b, off, n);
+            off += n;
+        }
+        return b;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.write(chunks[i], 0, i == count - 1 ? pos : chunks[i].length);
+        }
+    }
+
+    /**
+     * Writes the whole content with gathering writes straight from the
+     * chunks.
+     *
+     * @return number of bytes written
+     */
+    public long writeTo(GatheringByteChannel out) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            buffers[i] = ByteBuffer.wrap(chunks[i], 0, i == count - 1 ? pos
+                    : chunks[i].length);
+        }
+        long written = 0;
+        int first = 0;
+        while (written < size) {
+            written += out.write(buffers, first, count - first);
+            while (first < count && !buffers[first].hasRemaining()) {
+                first++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Empties the sink, keeping its first chunk.
+     */
+    public void reset() {
+        for (int i = 1; i < count; i++) {
+            pool.release(chunks[i]);
+            chunks[i] = null;
+        }
+        count = Math.min(count, 1);
+        pos = 0;
+        size = 0;
+    }
+
+    public void release() {
+        for (int i = 0; i < count; i++) {
+            pool.release(chunks[i]);
+            chunks[i] = null;
+        }
+        count = 0;
+        pos = 0;
+        size = 0;
+    }
+
+    /**
+     * Fixed-size chunks, pooled like the zlib contexts.
+     */
+    static class ChunkPool extends ZlibPool<byte[]> {
+        private final int chunkSize;
+
+        ChunkPool(Mode mode, int capacity, int chunkSize) {
+            super(mode, capacity);
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected byte[] create() {
+            return new byte[chunkSize];
+        }
+
+        @Override
+        protected void reset(byte[] chunk) {
+            // contents are overwritten before they are read
+        }
+
+        @Override
+        protected void end(byte[] chunk) {
+        }
+    }
+}
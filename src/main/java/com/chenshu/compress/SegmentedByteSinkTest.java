@@ -0,0 +1,122 @@
+package com.chenshu.compress;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Collecting {@code size} bytes of output, written in {@code writeSize}
+ * pieces as a compressor stream does, in a default
+ * {@code ByteArrayOutputStream} against a {@link SegmentedByteSink}, then
+ * either copying it out into one array or writing it to a channel
+ * ({@code /dev/null}, so the write itself costs no I/O). The
+ * {@link AllocationProbe} line after each iteration shows the garbage each
+ * leaves per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SegmentedByteSinkTest {
+
+    private byte[] piece;
+    private FileChannel channel;
+
+    @Param({ "BAOS", "SEGMENTED" })
+    protected String sink;
+
+    @Param({ "1024", "65536", "1048576", "16777216", "104857600" })
+    protected int size;
+
+    /** DeflaterOutputStream's default buffer */
+    @Param({ "512" })
+    protected int writeSize;
+
+    @Param({ "JSON" })
+    protected String corpus;
+
+    @Setup
+    public void prepare() throws IOException {
+        piece = Corpus.load(corpus, writeSize);
+        channel = FileChannel.open(Paths.get("/dev/null"),
+                StandardOpenOption.WRITE);
+    }
+
+    @TearDown
+    public void shutdown() throws IOException {
+        channel.close();
+    }
+
+    private OutputStream fill(OutputStream out) throws IOException {
+        for (int n = size; n > 0; n -= writeSize) {
+            out.write(piece, 0, Math.min(n, writeSize));
+        }
+        return out;
+    }
+
+    @Benchmark
+    public int toByteArray(AllocationProbe probe) throws IOException {
+        probe.op();
+        if ("BAOS".equals(sink)) {
+            return ((ByteArrayOutputStream) fill(new ByteArrayOutputStream()))
+                    .toByteArray().length;
+        }
+        SegmentedByteSink out = new SegmentedByteSink();
+        try {
+            fill(out);
+            return out.toByteArray().length;
+        } finally {
+            out.release();
+        }
+    }
+
+    @Benchmark
+    public long toChannel(AllocationProbe probe) throws IOException {
+        probe.op();
+        if ("BAOS".equals(sink)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            fill(out);
+            out.writeTo(Channels.newOutputStream(channel));
+            return out.size();
+        }
+        SegmentedByteSink out = new SegmentedByteSink();
+        try {
+            fill(out);
+            return out.writeTo(channel);
+        } finally {
+            out.release();
+        }
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar SegmentedByteSinkTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(SegmentedByteSinkTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
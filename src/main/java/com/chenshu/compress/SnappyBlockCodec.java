@@ -0,0 +1,226 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Raw Snappy block codec: a varint uncompressed length followed by literal
+ * and copy elements. The match finder is the same single-probe hash table as
+ * {@link Lz4BlockCodec}; output is readable by commons-compress'
+ * {@code SnappyCompressorInputStream} and any other Snappy implementation.
+ * Matches are kept within 32 KB, the window commons-compress 1.9 decodes
+ * with, so every copy offset fits in two bytes whatever the input size.
+ */
+class SnappyBlockCodec implements BlockCodec {
+
+    private static final int LITERAL = 0;
+    private static final int COPY_1 = 1;
+    private static final int COPY_2 = 2;
+    private static final int COPY_4 = 3;
+
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_DISTANCE = 32768;
+    private static final int HASH_LOG = 14;
+    private static final int SKIP_STRENGTH = 5;
+    // keep the last few bytes out of the match finder so the 4-byte reads
+    // never run past the end
+    private static final int INPUT_MARGIN = 15;
+
+    private final int[] table = new int[1 << HASH_LOG];
+
+    static int maxCompressedLength0(int len) {
+        return 32 + len + len / 6;
+    }
+
+    @Override
+    public int maxCompressedLength(int len) {
+        return maxCompressedLength0(len);
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return (b[i] & 0xff) | (b[i + 1] & 0xff) << 8
+                | (b[i + 2] & 0xff) << 16 | (b[i + 3] & 0xff) << 24;
+    }
+
+    private static int hash(int seq) {
+        return (seq * 0x1e35a7bd) >>> (32 - HASH_LOG);
+    }
+
+    @Override
+    public int compress(byte[] src, int off, int len, byte[] dst, int dstOff)
+            throws IOException {
+        if (dst.length - dstOff < maxCompressedLength(len)) {
+            throw new IOException("Destination buffer too small");
+        }
+        int dp = writeVarInt(len, dst, dstOff);
+        int end = off + len;
+        int anchor = off;
+        if (len >= INPUT_MARGIN) {
+            Arrays.fill(table, 0);
+            int[] table = this.table;
+            int limit = end - INPUT_MARGIN;
+            int sp = off + 1;
+            while (sp < limit) {
+                int seq = readInt(src, sp);
+                int h = hash(seq);
+                int ref = off + table[h];
+                table[h] = sp - off;
+                if (ref >= sp || sp - ref > MAX_DISTANCE
+                        || readInt(src, ref) != seq) {
+                    sp += 1 + ((sp - anchor) >>> SKIP_STRENGTH);
+                    continue;
+                }
+                if (sp > anchor) {
+                    dp = writeLiteral(src, anchor, sp - anchor, dst, dp);
+                }
+                int matchLen = MIN_MATCH;
+                while (sp + matchLen < end
+                        && src[sp + matchLen] == src[ref + matchLen]) {
+                    matchLen++;
+                }
+                dp = writeCopy(sp - ref, matchLen, dst, dp);
+                sp += matchLen;
+                anchor = sp;
+                if (sp < limit) {
+                    table[hash(readInt(src, sp - 1))] = sp - 1 - off;
+                }
+            }
+        }
+        if (anchor < end) {
+            dp = writeLiteral(src, anchor, end - anchor, dst, dp);
+        }
+        return dp - dstOff;
+    }
+
+    private static int writeVarInt(int v, byte[] dst, int dp) {
+        while ((v & ~0x7f) != 0) {
+            dst[dp++] = (byte) (v | 0x80);
+            v >>>= 7;
+        }
+        dst[dp++] = (byte) v;
+        return dp;
+    }
+
+    private static int writeLiteral(byte[] src, int off, int len, byte[] dst,
+            int dp) {
+        int n = len - 1;
+        if (n < 60) {
+            dst[dp++] = (byte) (n << 2 | LITERAL);
+        } else {
+            int bytes = n < 1 << 8 ? 1 : n < 1 << 16 ? 2 : n < 1 << 24 ? 3 : 4;
+            dst[dp++] = (byte) ((59 + bytes) << 2 | LITERAL);
+            for (int i = 0; i < bytes; i++) {
+                dst[dp++] = (byte) (n >>> (8 * i));
+            }
+        }
+        System.arraycopy(src, off, dst, dp, len);
+        return dp + len;
+    }
+
+    private static int writeCopy(int offset, int len, byte[] dst, int dp) {
+        // copy-2 elements carry at most 64 bytes; never leave a tail shorter
+        // than 4 for the final element
+        while (len >= 68) {
+            dp = writeCopy2(offset, 64, dst, dp);
+            len -= 64;
+        }
+        if (len > 64) {
+            dp = writeCopy2(offset, 60, dst, dp);
+            len -= 60;
+        }
+        if (len < 12 && offset < 2048) {
+            dst[dp++] = (byte) (COPY_1 | (len - 4) << 2 | (offset >>> 8) << 5);
+            dst[dp++] = (byte) offset;
+            return dp;
+        }
+        return writeCopy2(offset, len, dst, dp);
+    }
+
+    private static int writeCopy2(int offset, int len, byte[] dst, int dp) {
+        dst[dp++] = (byte) (COPY_2 | (len - 1) << 2);
+        dst[dp++] = (byte) offset;
+        dst[dp++] = (byte) (offset >>> 8);
+        return dp;
+    }
+
+    @Override
+    public int decompress(byte[] src, int off, int len, byte[] dst,
+            int dstOff) throws IOException {
+        int sp = off;
+        int end = off + len;
+        int expected = 0;
+        for (int shift = 0;; shift += 7) {
+            if (sp >= end || shift > 28) {
+                throw new IOException("Malformed Snappy length");
+            }
+            int b = src[sp++];
+            expected |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        if (expected < 0 || expected > dst.length - dstOff) {
+            throw new IOException("Destination buffer too small");
+        }
+        int dp = dstOff;
+        int dstEnd = dstOff + expected;
+        try {
+            while (sp < end) {
+                int tag = src[sp++] & 0xff;
+                int n;
+                int offset;
+                switch (tag & 3) {
+                case LITERAL:
+                    n = tag >>> 2;
+                    if (n >= 60) {
+                        int bytes = n - 59;
+                        n = 0;
+                        for (int i = 0; i < bytes; i++) {
+                            n |= (src[sp++] & 0xff) << (8 * i);
+                        }
+                    }
+                    n++;
+                    if (n <= 0 || n > end - sp || n > dstEnd - dp) {
+                        throw new IOException("Malformed Snappy literal");
+                    }
+                    System.arraycopy(src, sp, dst, dp, n);
+                    sp += n;
+                    dp += n;
+                    continue;
+                case COPY_1:
+                    n = 4 + ((tag >>> 2) & 7);
+                    offset = (tag & 0xe0) << 3 | (src[sp++] & 0xff);
+                    break;
+                case COPY_2:
+                    n = 1 + (tag >>> 2);
+                    offset = (src[sp] & 0xff) | (src[sp + 1] & 0xff) << 8;
+                    sp += 2;
+                    break;
+                default:
+                    n = 1 + (tag >>> 2);
+                    offset = readInt(src, sp);
+                    sp += 4;
+                    break;
+                }
+                if (offset <= 0 || offset > dp - dstOff || n > dstEnd - dp) {
+                    throw new IOException("Malformed Snappy copy");
+                }
+                int ref = dp - offset;
+                if (offset >= n) {
+                    System.arraycopy(dst, ref, dst, dp, n);
+                    dp += n;
+                } else {
+                    for (int i = 0; i < n; i++) {
+                        dst[dp++] = dst[ref++];
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Unexpected end of Snappy block", e);
+        }
+        if (dp != dstEnd) {
+            throw new IOException("Snappy block shorter than its length");
+        }
+        return expected;
+    }
+}
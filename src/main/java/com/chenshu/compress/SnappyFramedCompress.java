@@ -0,0 +1,122 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.compress.compressors.snappy.FramedSnappyCompressorInputStream;
+
+/**
+ * Framed Snappy {@link StreamFactory}. commons-compress 1.9 only reads the
+ * format, so the output side is our own: the stream identifier, then one
+ * compressed chunk (or an uncompressed one, when it would not shrink) with a
+ * masked CRC-32C per 32 KB of input, encoded with {@link SnappyBlockCodec}.
+ */
+class SnappyFramedCompress implements StreamFactory {
+
+    private static final byte[] STREAM_IDENTIFIER = { (byte) 0xff, 6, 0, 0,
+            's', 'N', 'a', 'P', 'p', 'Y' };
+    private static final int COMPRESSED_CHUNK = 0x00;
+    private static final int UNCOMPRESSED_CHUNK = 0x01;
+    private static final int MASK_OFFSET = 0xa282ead8;
+    // the format allows 64 KB, but the commons-compress 1.9 reader fails on
+    // chunks larger than its 32 KB window
+    private static final int CHUNK_SIZE = 32768;
+
+    @Override
+    public InputStream getInputStream(InputStream in) throws IOException {
+        return new FramedSnappyCompressorInputStream(in);
+    }
+
+    @Override
+    public OutputStream getOutputStream(OutputStream out) throws IOException {
+        return new FramedSnappyOutputStream(out);
+    }
+
+    static int mask(int crc) {
+        return ((crc >>> 15) | (crc << 17)) + MASK_OFFSET;
+    }
+
+    static class FramedSnappyOutputStream extends OutputStream {
+        private static final int CHUNK_HEADER = 8;
+
+        private final OutputStream out;
+        private final SnappyBlockCodec codec = new SnappyBlockCodec();
+        private final Crc32C crc = new Crc32C();
+        private final byte[] buf = new byte[CHUNK_SIZE];
+        private final byte[] chunk = new byte[CHUNK_HEADER
+                + SnappyBlockCodec.maxCompressedLength0(buf.length)];
+        private int count;
+        private boolean finished;
+
+        FramedSnappyOutputStream(OutputStream out) throws IOException {
+            this.out = out;
+            out.write(STREAM_IDENTIFIER);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buf.length) {
+                flushChunk();
+            }
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buf.length) {
+                    flushChunk();
+                }
+                int n = Math.min(len, buf.length - count);
+                System.arraycopy(b, off, buf, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            crc.reset();
+            crc.update(buf, 0, count);
+            int n = codec.compress(buf, 0, count, chunk, CHUNK_HEADER);
+            if (n < count) {
+                writeHeader(COMPRESSED_CHUNK, n);
+                out.write(chunk, 0, CHUNK_HEADER + n);
+            } else {
+                writeHeader(UNCOMPRESSED_CHUNK, count);
+                out.write(chunk, 0, CHUNK_HEADER);
+                out.write(buf, 0, count);
+            }
+            count = 0;
+        }
+
+        private void writeHeader(int type, int len) {
+            int chunkLength = len + 4;
+            chunk[0] = (byte) type;
+            chunk[1] = (byte) chunkLength;
+            chunk[2] = (byte) (chunkLength >>> 8);
+            chunk[3] = (byte) (chunkLength >>> 16);
+            Lz4FrameCompress.writeInt(chunk, 4, mask((int) crc.getValue()));
+        }
+
+        public void finish() throws IOException {
+            if (!finished) {
+                finished = true;
+                flushChunk();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                finish();
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
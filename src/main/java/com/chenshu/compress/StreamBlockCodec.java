@@ -0,0 +1,115 @@
+package com.chenshu.compress;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Adapts a {@link StreamFactory} to {@link BlockCodec}, writing straight into
+ * the caller's array instead of a {@code ByteArrayOutputStream}. The codec
+ * streams themselves are still created per call, so this removes the copies
+ * but not the per-stream allocations of the wrapped codec.
+ */
+abstract class StreamBlockCodec implements BlockCodec {
+
+    // bzip2 never expands more than 1% + 600 bytes
+    private static final int BZIP2_SLACK = 600;
+
+    private final StreamFactory factory;
+
+    StreamBlockCodec(StreamFactory factory) {
+        this.factory = factory;
+    }
+
+    static StreamBlockCodec commonsGzip(int level) {
+        return new StreamBlockCodec(
+                new CompressSizeTest.CommonsGzipCompress(level)) {
+            @Override
+            public int maxCompressedLength(int len) {
+                return DeflateBlockCodec.deflateBound(len)
+                        + GzipFormat.HEADER_SIZE + GzipFormat.TRAILER_SIZE;
+            }
+        };
+    }
+
+    static StreamBlockCodec commonsDeflate(int level) {
+        return new StreamBlockCodec(
+                new CompressSizeTest.CommonsDeflateCompress(level)) {
+            @Override
+            public int maxCompressedLength(int len) {
+                return DeflateBlockCodec.deflateBound(len) + 6;
+            }
+        };
+    }
+
+    static StreamBlockCodec commonsBZip2(int blockSize) {
+        return new StreamBlockCodec(
+                new CompressSizeTest.CommonsBZip2Compress(blockSize)) {
+            @Override
+            public int maxCompressedLength(int len) {
+                return len + len / 100 + BZIP2_SLACK;
+            }
+        };
+    }
+
+    @Override
+    public int compress(byte[] src, int off, int len, byte[] dst, int dstOff)
+            throws IOException {
+        ArraySink sink = new ArraySink(dst, dstOff);
+        OutputStream out = factory.getOutputStream(sink);
+        try {
+            out.write(src, off, len);
+        } finally {
+            out.close();
+        }
+        return sink.pos - dstOff;
+    }
+
+    @Override
+    public int decompress(byte[] src, int off, int len, byte[] dst,
+            int dstOff) throws IOException {
+        InputStream in = factory.getInputStream(new ByteArrayInputStream(src,
+                off, len));
+        int p = dstOff;
+        try {
+            int n;
+            while ((n = in.read(dst, p, dst.length - p)) > 0) {
+                p += n;
+            }
+            if (n == 0 && in.read() != -1) {
+                throw new IOException("Destination buffer too small");
+            }
+        } finally {
+            in.close();
+        }
+        return p - dstOff;
+    }
+
+    static class ArraySink extends OutputStream {
+        private final byte[] buf;
+        int pos;
+
+        ArraySink(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (pos == buf.length) {
+                throw new IOException("Destination buffer too small");
+            }
+            buf[pos++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > buf.length - pos) {
+                throw new IOException("Destination buffer too small");
+            }
+            System.arraycopy(b, off, buf, pos, len);
+            pos += len;
+        }
+    }
+}
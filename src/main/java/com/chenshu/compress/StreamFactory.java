@@ -0,0 +1,13 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+interface StreamFactory {
+
+    public InputStream getInputStream(final InputStream in) throws IOException;
+
+    public OutputStream getOutputStream(final OutputStream out)
+            throws IOException;
+}
@@ -0,0 +1,42 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+
+/**
+ * Compression and decompression through the one {@link StreamFactory} a
+ * parameter combination selects, shared by the benchmarks that sweep the
+ * settings of a single codec ({@link DeflateMatrixTest},
+ * {@link GzipBufferTest}, {@link BZip2BlockSizeTest}). Decompression writes
+ * into an array allocated once, so only the codec's own allocations show.
+ */
+public abstract class StreamFactoryHarness {
+
+    protected byte[] src;
+    protected byte[] data;
+    protected byte[] dest;
+    protected StreamFactory factory;
+
+    /**
+     * Compresses {@code src} with {@code factory}, checking that it
+     * decompresses back to it.
+     */
+    protected void prepare(StreamFactory factory, byte[] src)
+            throws IOException {
+        this.factory = factory;
+        this.src = src;
+        data = CompressUtils.roundTrip(factory, src);
+        dest = new byte[src.length];
+    }
+
+    protected int compress(ThroughputCounters counters) throws IOException {
+        byte[] z = CompressUtils.compress(factory, src);
+        counters.add(src.length, z.length);
+        return z.length;
+    }
+
+    protected int decompress(ThroughputCounters counters) throws IOException {
+        int n = CompressUtils.decompress(factory, data, dest, 0);
+        counters.add(n, data.length);
+        return n;
+    }
+}
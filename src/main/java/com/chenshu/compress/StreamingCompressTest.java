@@ -0,0 +1,175 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Per-message latency of a long-lived {@link MessageDeflater} session
+ * (SYNC_FLUSH or FULL_FLUSH) against compressing every message on its own,
+ * both with a reused context and with a new gzip stream per message. The
+ * messages are consecutive slices of a corpus; the ratio of each approach is
+ * printed during setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StreamingCompressTest {
+
+    private static final int MESSAGES = 1024;
+
+    private byte[][] messages;
+    private int next;
+    private byte[] frame;
+    private byte[] dest;
+
+    private MessageDeflater streaming;
+    private MessageDeflater streamingFull;
+    private DeflateBlockCodec independent;
+    private StreamFactory gzip;
+
+    // one recorded session for the decode side
+    private byte[][] frames;
+    private int[] frameLengths;
+    private byte[][] blocks;
+    private int[] blockLengths;
+    private MessageInflater inflater;
+
+    @Param({ "1", "6" })
+    protected int level;
+
+    @Param({ "JSON", "RECORDS" })
+    protected String corpus;
+
+    @Param({ "128", "1024", "8192" })
+    protected int messageSize;
+
+    @Setup
+    public void prepare() throws IOException {
+        byte[] src = Corpus.load(corpus, MESSAGES * messageSize);
+        messages = new byte[MESSAGES][];
+        for (int i = 0; i < MESSAGES; i++) {
+            messages[i] = Arrays.copyOfRange(src, i * messageSize, (i + 1)
+                    * messageSize);
+        }
+        streaming = new MessageDeflater(level, false);
+        streamingFull = new MessageDeflater(level, true);
+        independent = new DeflateBlockCodec(level, true);
+        gzip = new CompressSizeTest.JdkGzipCompress(level);
+        frame = new byte[streaming.maxFrameLength(messageSize)];
+        dest = new byte[messageSize + 64];
+
+        frames = new byte[MESSAGES][];
+        frameLengths = new int[MESSAGES];
+        blocks = new byte[MESSAGES][];
+        blockLengths = new int[MESSAGES];
+        MessageDeflater recorder = new MessageDeflater(level, false);
+        long streamed = 0;
+        long separate = 0;
+        for (int i = 0; i < MESSAGES; i++) {
+            frames[i] = new byte[frame.length];
+            frameLengths[i] = recorder.deflate(messages[i], 0, messageSize,
+                    frames[i], 0);
+            blocks[i] = new byte[independent.maxCompressedLength(messageSize)];
+            blockLengths[i] = independent.compress(messages[i], 0,
+                    messageSize, blocks[i], 0);
+            streamed += frameLengths[i];
+            separate += blockLengths[i];
+        }
+        recorder.end();
+        System.out.printf(" [ratio streaming %.4f, independent %.4f]",
+                (double) streamed / src.length, (double) separate / src.length);
+
+        inflater = new MessageInflater();
+        for (int i = 0; i < MESSAGES; i++) {
+            int n = inflater.inflate(frames[i], 0, frameLengths[i], dest, 0);
+            if (n != messageSize
+                    || !Arrays.equals(messages[i], Arrays.copyOf(dest, n))) {
+                throw new IllegalStateException("Message " + i
+                        + " does not inflate back to the original");
+            }
+        }
+        inflater.reset();
+    }
+
+    @TearDown
+    public void shutdown() {
+        streaming.end();
+        streamingFull.end();
+        independent.end();
+        inflater.end();
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (next + 1) & (MESSAGES - 1);
+        return i;
+    }
+
+    @Benchmark
+    public int streamingSyncFlush() {
+        byte[] msg = messages[nextIndex()];
+        return streaming.deflate(msg, 0, msg.length, frame, 0);
+    }
+
+    @Benchmark
+    public int streamingFullFlush() {
+        byte[] msg = messages[nextIndex()];
+        return streamingFull.deflate(msg, 0, msg.length, frame, 0);
+    }
+
+    @Benchmark
+    public int independentDeflate() throws IOException {
+        byte[] msg = messages[nextIndex()];
+        return independent.compress(msg, 0, msg.length, frame, 0);
+    }
+
+    @Benchmark
+    public int independentGzipStream() throws IOException {
+        return CompressUtils.compress(gzip, messages[nextIndex()]).length;
+    }
+
+    @Benchmark
+    public int streamingInflate() throws IOException {
+        int i = nextIndex();
+        if (i == 0) {
+            // the recorded session starts over
+            inflater.reset();
+        }
+        return inflater.inflate(frames[i], 0, frameLengths[i], dest, 0);
+    }
+
+    @Benchmark
+    public int independentInflate() throws IOException {
+        int i = nextIndex();
+        return independent.decompress(blocks[i], 0, blockLengths[i], dest, 0);
+    }
+
+    /**
+     * 
+     * java -jar target/benchmarks.jar StreamingCompressTest -wi 5 -i 5 -f 1
+     * 
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(StreamingCompressTest.class.getSimpleName())
+                .warmupIterations(5).measurementIterations(5).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+}
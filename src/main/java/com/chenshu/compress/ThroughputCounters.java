@@ -0,0 +1,44 @@
+package com.chenshu.compress;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Byte counters for compression benchmarks, in the style of
+ * JMHSample_23_AuxCounters. Both counters are kept in the same direction for
+ * compress and decompress benchmarks, so with {@code @OutputTimeUnit(SECONDS)}
+ * {@code :uncompressedBytes} reads as bytes/s of plain data (divide by 10^6
+ * for MB/s) and {@code :compressedBytes} / {@code :uncompressedBytes} is the
+ * compression ratio.
+ * <p>
+ * JMH 1.5 normalizes every aux counter by time, so the ratio cannot be a
+ * counter itself; it is derived from the two rates and also printed at the
+ * end of each iteration.
+ */
+@AuxCounters
+@State(Scope.Thread)
+public class ThroughputCounters {
+    public long uncompressedBytes, compressedBytes;
+
+    @Setup(Level.Iteration)
+    public void clean() {
+        uncompressedBytes = compressedBytes = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        if (uncompressedBytes > 0) {
+            System.out.printf(" [ratio %.4f]", (double) compressedBytes
+                    / uncompressedBytes);
+        }
+    }
+
+    public void add(long uncompressed, long compressed) {
+        uncompressedBytes += uncompressed;
+        compressedBytes += compressed;
+    }
+}
@@ -0,0 +1,181 @@
+package com.chenshu.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.commons.compress.compressors.z.ZCompressorInputStream;
+
+/**
+ * Unix compress (.Z) {@link StreamFactory}. commons-compress only reads the
+ * format, so {@link ZOutputStream} is a block-mode LZW encoder written to
+ * match its decoder: codes start at 9 bits and grow up to {@code maxBits},
+ * and every change of code width is preceded by padding to a multiple of
+ * eight codes, as compress(1) does. The dictionary is cleared when it fills.
+ */
+class ZCompress implements StreamFactory {
+
+    private static final int MAGIC_1 = 0x1f;
+    private static final int MAGIC_2 = 0x9d;
+    private static final int BLOCK_MODE = 0x80;
+
+    private final int maxBits;
+
+    public ZCompress() {
+        this(16);
+    }
+
+    public ZCompress(int maxBits) {
+        if (maxBits < 9 || maxBits > 16) {
+            throw new IllegalArgumentException("maxBits must be 9..16: "
+                    + maxBits);
+        }
+        this.maxBits = maxBits;
+    }
+
+    @Override
+    public InputStream getInputStream(InputStream in) throws IOException {
+        return new ZCompressorInputStream(in);
+    }
+
+    @Override
+    public OutputStream getOutputStream(OutputStream out) throws IOException {
+        return new ZOutputStream(out, maxBits);
+    }
+
+    static class ZOutputStream extends OutputStream {
+        private static final int CLEAR = 256;
+        private static final int FIRST = 257;
+
+        private final OutputStream out;
+        private final int maxBits;
+        // open addressing at most half full: key is prefix code << 8 | next
+        // byte, plus one so that zero marks an empty slot
+        private final int hashBits;
+        private final int[] keys;
+        private final int[] codes;
+        private final byte[] buf = new byte[8192];
+        private int count;
+        private int bitBuffer;
+        private int bitCount;
+        private long codesWritten;
+        private int codeBits = 9;
+        private int nextCode = FIRST;
+        private int prefix = -1;
+        private boolean finished;
+
+        ZOutputStream(OutputStream out, int maxBits) throws IOException {
+            this.out = out;
+            this.maxBits = maxBits;
+            this.hashBits = maxBits + 1;
+            this.keys = new int[1 << hashBits];
+            this.codes = new int[1 << hashBits];
+            out.write(MAGIC_1);
+            out.write(MAGIC_2);
+            out.write(BLOCK_MODE | maxBits);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int end = off + len;
+            int i = off;
+            if (prefix < 0 && i < end) {
+                prefix = b[i++] & 0xff;
+            }
+            int[] keys = this.keys;
+            int mask = keys.length - 1;
+            for (; i < end; i++) {
+                int c = b[i] & 0xff;
+                int key = (prefix << 8 | c) + 1;
+                int h = (key * 0x9E3779B1) >>> (32 - hashBits);
+                while (keys[h] != 0 && keys[h] != key) {
+                    h = (h + 1) & mask;
+                }
+                if (keys[h] == key) {
+                    prefix = codes[h];
+                    continue;
+                }
+                writeCode(prefix);
+                if (nextCode >= 1 << codeBits && codeBits < maxBits) {
+                    align();
+                    codeBits++;
+                }
+                if (nextCode < 1 << maxBits) {
+                    keys[h] = key;
+                    codes[h] = nextCode++;
+                }
+                if (nextCode == 1 << maxBits) {
+                    writeCode(CLEAR);
+                    align();
+                    Arrays.fill(keys, 0);
+                    codeBits = 9;
+                    nextCode = FIRST;
+                }
+                prefix = c;
+            }
+        }
+
+        private void writeCode(int code) throws IOException {
+            bitBuffer |= code << bitCount;
+            bitCount += codeBits;
+            while (bitCount >= 8) {
+                if (count == buf.length) {
+                    flushBuffer();
+                }
+                buf[count++] = (byte) bitBuffer;
+                bitBuffer >>>= 8;
+                bitCount -= 8;
+            }
+            codesWritten++;
+        }
+
+        /**
+         * Pads with zero codes to the next multiple of eight codes, which is
+         * also a byte boundary; the reader skips the same number.
+         */
+        private void align() throws IOException {
+            while ((codesWritten & 7) != 0) {
+                writeCode(0);
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+
+        public void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (prefix >= 0) {
+                writeCode(prefix);
+            }
+            if (bitCount > 0) {
+                if (count == buf.length) {
+                    flushBuffer();
+                }
+                buf[count++] = (byte) bitBuffer;
+                bitBuffer = 0;
+                bitCount = 0;
+            }
+            flushBuffer();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                finish();
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
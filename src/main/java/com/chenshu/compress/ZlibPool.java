@@ -0,0 +1,81 @@
+package com.chenshu.compress;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hands out zlib contexts according to a {@link Mode}. Instances are reset
+ * when they come back, so whatever {@link #acquire()} returns is ready for a
+ * new stream. Anything the pool cannot keep is {@code end()}ed right away
+ * rather than left for the finalizer.
+ */
+abstract class ZlibPool<T> {
+
+    enum Mode {
+        /** a fresh native context per stream, like GZIPOutputStream */
+        NEW,
+        /** one cached context per thread */
+        THREAD_LOCAL,
+        /** a bounded pool shared by all threads */
+        SHARED
+    }
+
+    private final Mode mode;
+    private final BlockingQueue<T> shared;
+    private final ThreadLocal<T> local;
+
+    ZlibPool(Mode mode, int capacity) {
+        this.mode = mode;
+        this.shared = mode == Mode.SHARED ? new ArrayBlockingQueue<T>(capacity)
+                : null;
+        this.local = mode == Mode.THREAD_LOCAL ? new ThreadLocal<T>() : null;
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    T acquire() {
+        T t = null;
+        switch (mode) {
+        case THREAD_LOCAL:
+            t = local.get();
+            // leave the slot empty so a nested stream gets its own context
+            local.set(null);
+            break;
+        case SHARED:
+            t = shared.poll();
+            break;
+        default:
+            break;
+        }
+        return t != null ? t : create();
+    }
+
+    void release(T t) {
+        switch (mode) {
+        case THREAD_LOCAL:
+            if (local.get() == null) {
+                reset(t);
+                local.set(t);
+                return;
+            }
+            break;
+        case SHARED:
+            reset(t);
+            if (shared.offer(t)) {
+                return;
+            }
+            break;
+        default:
+            break;
+        }
+        end(t);
+    }
+
+    protected abstract T create();
+
+    protected abstract void reset(T t);
+
+    protected abstract void end(T t);
+}